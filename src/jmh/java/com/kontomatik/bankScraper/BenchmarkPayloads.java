@@ -0,0 +1,62 @@
+package com.kontomatik.bankScraper;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+public final class BenchmarkPayloads {
+    private static final int ACCOUNTS_PER_GROUP = 25;
+    private static final String[] CURRENCIES = {"PLN", "EUR", "USD", "CHF"};
+
+    private BenchmarkPayloads() {
+    }
+
+    public static String accountsGroupsJson(int accountCount) {
+        SplittableRandom random = new SplittableRandom(accountCount);
+        StringBuilder json = new StringBuilder(accountCount * 180);
+        json.append("{\"accountsGroups\":[");
+        for (int group = 0; group * ACCOUNTS_PER_GROUP < accountCount; group++) {
+            if (group > 0) {
+                json.append(',');
+            }
+            json.append("{\"accounts\":[");
+            int first = group * ACCOUNTS_PER_GROUP;
+            int last = Math.min(accountCount, first + ACCOUNTS_PER_GROUP);
+            for (int i = first; i < last; i++) {
+                if (i > first) {
+                    json.append(',');
+                }
+                json.append("{\"accountNumber\":\"").append(accountNumber(i))
+                        .append("\",\"balance\":").append(String.format(Locale.ROOT, "%.2f", random.nextDouble(0, 1_000_000)))
+                        .append(",\"currency\":\"").append(CURRENCIES[i % CURRENCIES.length])
+                        .append("\",\"name\":\"eKonto ").append(i)
+                        .append("\",\"customName\":\"\"}");
+            }
+            json.append("],\"header\":\"Group ").append(group)
+                    .append("\",\"summary\":{\"currency\":\"PLN\",\"isRoundedToOneCurrency\":true,\"balance\":0.00}}");
+        }
+        json.append("],\"summary\":{\"currency\":\"PLN\",\"isRoundedToOneCurrency\":true,\"balance\":0.00}}");
+        return json.toString();
+    }
+
+    public static List<Account> accounts(int accountCount) {
+        SplittableRandom random = new SplittableRandom(accountCount);
+        List<Account> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(new Account(
+                    accountNumber(i),
+                    BigDecimal.valueOf(random.nextLong(0, 100_000_000), 2),
+                    "eKonto " + i));
+        }
+        return accounts;
+    }
+
+    private static String accountNumber(int index) {
+        return String.format(Locale.ROOT, "%02d 1140 2004 0000 %04d %04d %04d",
+                index % 100, index / 100_000_000 % 10_000, index / 10_000 % 10_000, index % 10_000);
+    }
+}
@@ -0,0 +1,70 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import com.kontomatik.bankScraper.BenchmarkPayloads;
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.services.JsonCodec;
+import com.kontomatik.bankScraper.services.ResponseHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountDecodingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int accountCount;
+
+    private ResponseHandler responseHandler;
+    private String payload;
+
+    @Setup
+    public void setup() {
+        responseHandler = new ResponseHandler(new JsonCodec(List.of(), new Gson()));
+        payload = BenchmarkPayloads.accountsGroupsJson(accountCount);
+    }
+
+    @Benchmark
+    public void streamAccounts(Blackhole blackhole) throws IOException, ResponseHandlingException {
+        responseHandler.streamElements(new StringReader(payload), Account.class, blackhole::consume,
+                "accountsGroups", "accounts");
+    }
+
+    @Benchmark
+    public void decodeAccounts(Blackhole blackhole) throws IOException, ResponseHandlingException {
+        AccountsDecoder.decode(new StringReader(payload), view -> blackhole.consume(view.toAccount()));
+    }
+
+    @Benchmark
+    public void decodeMinorUnits(Blackhole blackhole) throws IOException, ResponseHandlingException {
+        AccountsDecoder.decode(new StringReader(payload), view -> {
+            blackhole.consume(view.minorUnits());
+            blackhole.consume(view.currency());
+        });
+    }
+
+    @Benchmark
+    public void decodeTreeAndFlatten(Blackhole blackhole) throws ResponseHandlingException {
+        AccountsDocument document = responseHandler.handleResponse(payload, AccountsDocument.class);
+        document.accountGroups().stream()
+                .flatMap(group -> group.accounts().stream())
+                .forEach(blackhole::consume);
+    }
+
+    record AccountsDocument(@SerializedName("accountsGroups") List<Group> accountGroups) {
+    }
+
+    record Group(List<Account> accounts) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.kontomatik.bankScraper.mbank;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestPreparationBenchmark {
+
+    @Param({"8", "32"})
+    private int cookieCount;
+
+    private Cookies cookies;
+
+    @Setup
+    public void setup() {
+        Map<String, String> sessionCookies = new HashMap<>();
+        for (int i = 0; i < cookieCount; i++) {
+            sessionCookies.put("cookie" + i, "value-" + i + "-0123456789abcdef");
+        }
+        cookies = new Cookies();
+        cookies.addCookies(sessionCookies);
+    }
+
+    @Benchmark
+    public Map<String, String> getCookies() {
+        return cookies.getCookies();
+    }
+
+    @Benchmark
+    public Map<String, String> cookiesForUrl() {
+        return cookies.cookiesFor("https://online.mbank.pl/pl/Accounts/Accounts/List");
+    }
+
+    @Benchmark
+    public RequestParams buildRequestParams() {
+        return new RequestParams.Builder()
+                .cookies(cookies.getCookies())
+                .ignoreContentType(true)
+                .data(Map.of("scaAuthorizationId", "0123456789"))
+                .headers(Map.of("User-Agent", "benchmark", "X-Request-Verification-Token", "token"))
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.kontomatik.bankScraper.ui;
+
+import com.kontomatik.bankScraper.BenchmarkPayloads;
+import com.kontomatik.bankScraper.models.Account;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsolePrinterBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int accountCount;
+
+    private final ConsolePrinter consolePrinter = new ConsolePrinter();
+    private final OutputSinks outputSinks = new OutputSinks("text", 1024, 65536);
+    private List<Account> accounts;
+
+    @Setup
+    public void setup() {
+        accounts = BenchmarkPayloads.accounts(accountCount);
+    }
+
+    @Benchmark
+    public String formatAccountGroups() {
+        return consolePrinter.formatAccountGroups(accounts);
+    }
+
+    @Benchmark
+    public void streamToSink() {
+        try (AccountSink sink = outputSinks.open(OutputStream.nullOutputStream(), AccountFormat.TEXT)) {
+            accounts.forEach(sink::write);
+        }
+    }
+}
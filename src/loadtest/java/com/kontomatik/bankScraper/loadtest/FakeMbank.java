@@ -0,0 +1,379 @@
+package com.kontomatik.bankScraper.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// stands in for online.mbank.pl: the same endpoints and login state machine as the real bank, with injected latency,
+// transient 503s and a customer who takes a while to approve the 2FA request on their phone.
+// Any password except "wrong" logs in; every username gets its own stable set of accounts
+public class FakeMbank implements AutoCloseable {
+    static final String WRONG_PASSWORD = "wrong";
+    private static final String SESSION_COOKIE = "mBank8";
+    private static final String AUTH_COOKIE = "mBank_auth";
+    private static final String TOKEN_HEADER = "X-Request-Verification-Token";
+    private static final String INVALID_CREDENTIALS = "Nieprawidłowy identyfikator lub hasło.";
+    private static final String UNAVAILABLE = "<html><body><h1>Service Unavailable</h1></body></html>";
+    private static final int PRUNE_EVERY = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Route> routes = new HashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final LatencyDistribution approvalDelay;
+    private final double cancelRate;
+    private final int accountsPerCustomer;
+    private final int transactionsPerAccount;
+    private final Duration sessionTtl;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder logins = new LongAdder();
+
+    private FakeMbank(Options options) throws IOException {
+        latency = new LatencyDistribution(
+                options.getMillis("fakeMbank.latency.median.millis", 40),
+                options.getMillis("fakeMbank.latency.p99.millis", 400));
+        errorRate = options.getDouble("fakeMbank.errorRate", 0.01);
+        approvalDelay = new LatencyDistribution(
+                options.getMillis("fakeMbank.approval.median.millis", 2000),
+                options.getMillis("fakeMbank.approval.p99.millis", 10000));
+        cancelRate = options.getDouble("fakeMbank.approval.cancelRate", 0);
+        accountsPerCustomer = options.getInt("fakeMbank.accounts", 3);
+        transactionsPerAccount = options.getInt("fakeMbank.transactions", 250);
+        sessionTtl = options.getSeconds("mbank.session.ttl.seconds", 600);
+
+        routes.put(options.get("mbank.login.url", "/pl/LoginMain/Account/JsonLogin"), this::login);
+        routes.put(options.get("mbank.fetch.csrf.url", "/pl/setup/data"), this::csrfToken);
+        routes.put(options.get("mbank.fetch.scaId.url", "/pl/Sca/GetScaAuthorizationData"), this::scaAuthorizationData);
+        routes.put(options.get("mbank.begin.twoFactorAuth.url", "/api/auth/initprepare"), this::initTwoFactorAuth);
+        routes.put(options.get("mbank.status.twoFactorAuth.url", "/api/auth/status"), this::twoFactorStatus);
+        routes.put(options.get("mbank.execute.twoFactorAuth.url", "/api/auth/execute"), this::executeTwoFactorAuth);
+        routes.put(options.get("mbank.finalize.twoFactorAuth.url", "/pl/Sca/FinalizeAuthorization"), this::finalizeAuthorization);
+        routes.put(options.get("mbank.accounts.url", "/pl/Accounts/Accounts/AccountsGroups"), this::accounts);
+        routes.put(options.get("mbank.transactions.url", "/pl/Pfm/HistoryApi/GetTransactions"), this::transactions);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), options.getInt("fakeMbank.port", 8089)), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static FakeMbank start(Options options) throws IOException {
+        FakeMbank bank = new FakeMbank(options);
+        bank.server.start();
+        return bank;
+    }
+
+    public static void main(String[] args) throws Exception {
+        FakeMbank bank = start(Options.parse(args));
+        System.out.println("Fake mBank listening on " + bank.baseUrl() + " (" + bank.describe() + ")");
+        System.out.println("Point the scraper at it with --mbank.base.url=" + bank.baseUrl());
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    String describe() {
+        return "latency " + latency + ", error rate " + errorRate + ", 2FA approval " + approvalDelay
+                + ", cancel rate " + cancelRate;
+    }
+
+    String stats() {
+        return "requests=" + requests.sum() + " injected503=" + injectedErrors.sum() + " logins=" + logins.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            Thread.sleep(latency.sample());
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.increment();
+                send(exchange, 503, "text/html", UNAVAILABLE);
+                return;
+            }
+            Route route = routes.get(exchange.getRequestURI().getPath());
+            if (route == null) {
+                send(exchange, 404, "text/html", "<html><body>Not found</body></html>");
+                return;
+            }
+            route.handle(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            send(exchange, 500, "text/html", "<html><body>" + e + "</body></html>");
+        }
+    }
+
+    private void login(HttpExchange exchange) throws IOException {
+        Map<String, String> form = form(exchange);
+        String username = form.get("username");
+        String password = form.get("password");
+        if (username == null || password == null || password.equals(WRONG_PASSWORD)) {
+            sendJson(exchange, 200, "{\"successful\":false,\"errorMessageTitle\":\"" + INVALID_CREDENTIALS + "\"}");
+            return;
+        }
+        logins.increment();
+        if (logins.sum() % PRUNE_EVERY == 0) {
+            long now = System.nanoTime();
+            sessions.values().removeIf(session -> now - session.createdAt > sessionTtl.toNanos());
+        }
+        Session session = new Session(username);
+        sessions.put(session.id, session);
+        exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + session.id + "; Path=/; HttpOnly");
+        sendJson(exchange, 200, "{\"successful\":true,\"errorMessageTitle\":null}");
+    }
+
+    private void csrfToken(HttpExchange exchange) throws IOException {
+        Session session = session(exchange);
+        if (session == null) {
+            sendJson(exchange, 401, "{}");
+            return;
+        }
+        sendJson(exchange, 200, "{\"antiForgeryToken\":\"" + session.csrfToken + "\"}");
+    }
+
+    private void scaAuthorizationData(HttpExchange exchange) throws IOException {
+        Session session = session(exchange);
+        if (session == null) {
+            sendJson(exchange, 401, "{}");
+            return;
+        }
+        sendJson(exchange, 200, "{\"ScaAuthorizationId\":\"" + session.scaId + "\"}");
+    }
+
+    private void initTwoFactorAuth(HttpExchange exchange) throws IOException {
+        Session session = session(exchange);
+        Map<String, String> form = form(exchange);
+        if (session == null || !session.csrfToken.equals(exchange.getRequestHeaders().getFirst(TOKEN_HEADER))) {
+            sendJson(exchange, 403, "{}");
+            return;
+        }
+        if (!String.valueOf(form.get("Data")).contains(session.scaId)) {
+            sendJson(exchange, 400, "{}");
+            return;
+        }
+        session.tranId = UUID.randomUUID().toString();
+        session.decidedAt = System.nanoTime() + approvalDelay.sample().toNanos();
+        session.cancelled = ThreadLocalRandom.current().nextDouble() < cancelRate;
+        sendJson(exchange, 200, "{\"TranId\":\"" + session.tranId + "\"}");
+    }
+
+    private void twoFactorStatus(HttpExchange exchange) throws IOException {
+        Session session = session(exchange);
+        if (session == null || session.tranId == null || !session.tranId.equals(form(exchange).get("TranId"))) {
+            sendJson(exchange, 403, "{}");
+            return;
+        }
+        sendJson(exchange, 200, "{\"Status\":\"" + session.twoFactorStatus() + "\"}");
+    }
+
+    private void executeTwoFactorAuth(HttpExchange exchange) throws IOException {
+        Session session = session(exchange);
+        exchange.getRequestBody().readAllBytes();
+        if (session == null
+                || !session.csrfToken.equals(exchange.getRequestHeaders().getFirst(TOKEN_HEADER))
+                || !session.twoFactorStatus().equals("Authorized")) {
+            sendJson(exchange, 403, "{}");
+            return;
+        }
+        session.executed = true;
+        sendJson(exchange, 200, "{}");
+    }
+
+    private void finalizeAuthorization(HttpExchange exchange) throws IOException {
+        Session session = session(exchange);
+        if (session == null || !session.executed || !session.scaId.equals(form(exchange).get("scaAuthorizationId"))) {
+            sendJson(exchange, 403, "{}");
+            return;
+        }
+        if (session.authToken == null) {
+            session.authToken = UUID.randomUUID().toString();
+        }
+        exchange.getResponseHeaders().add("Set-Cookie", AUTH_COOKIE + "=" + session.authToken + "; Path=/; HttpOnly");
+        sendJson(exchange, 200, "{}");
+    }
+
+    private void accounts(HttpExchange exchange) throws IOException {
+        Session session = authenticatedSession(exchange);
+        if (session == null) {
+            send(exchange, 403, "text/html", "<html><body>Session expired</body></html>");
+            return;
+        }
+        StringBuilder json = new StringBuilder("{\"accountsGroups\":[{\"header\":\"Personal\",\"accounts\":[");
+        long total = 0;
+        for (int i = 0; i < accountsPerCustomer; i++) {
+            long balance = balanceOf(session.username, i);
+            total += balance;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"accountNumber\":\"").append(accountNumber(session.username, i))
+                    .append("\",\"balance\":").append(decimal(balance))
+                    .append(",\"currency\":\"PLN\",\"name\":\"eKonto ").append(i + 1)
+                    .append("\",\"customName\":\"\"}");
+        }
+        json.append("]}],\"summary\":{\"currency\":\"PLN\",\"isRoundedToOneCurrency\":false,\"balance\":")
+                .append(decimal(total)).append("}}");
+        sendJson(exchange, 200, json.toString());
+    }
+
+    // newest first, one transaction per day counting back from today
+    private void transactions(HttpExchange exchange) throws IOException {
+        Session session = authenticatedSession(exchange);
+        if (session == null) {
+            send(exchange, 403, "text/html", "<html><body>Session expired</body></html>");
+            return;
+        }
+        Map<String, String> query = parse(exchange.getRequestURI().getRawQuery());
+        String accountNumber = String.valueOf(query.get("accountNumber"));
+        int page = Integer.parseInt(query.getOrDefault("page", "0"));
+        int pageSize = Integer.parseInt(query.getOrDefault("pageSize", "100"));
+        LocalDate today = LocalDate.now();
+        LocalDate dateFrom = query.containsKey("dateFrom") ? LocalDate.parse(query.get("dateFrom")) : null;
+        StringBuilder json = new StringBuilder("{\"transactions\":[");
+        int from = page * pageSize;
+        int to = Math.min(transactionsPerAccount, from + pageSize);
+        boolean first = true;
+        for (int i = from; i < to; i++) {
+            LocalDate bookingDate = today.minusDays(i);
+            if (dateFrom != null && bookingDate.isBefore(dateFrom)) {
+                break;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"id\":\"").append(Math.abs(accountNumber.hashCode())).append('-').append(transactionsPerAccount - i)
+                    .append("\",\"bookingDate\":\"").append(bookingDate)
+                    .append("\",\"amount\":").append(decimal(-(Math.floorMod(accountNumber.hashCode() + i * 7919L, 50_000))))
+                    .append(",\"currency\":\"PLN\",\"description\":\"Card payment ").append(i).append("\"}");
+        }
+        json.append("]}");
+        sendJson(exchange, 200, json.toString());
+    }
+
+    private Session session(HttpExchange exchange) {
+        String id = cookies(exchange).get(SESSION_COOKIE);
+        return id == null ? null : sessions.get(id);
+    }
+
+    private Session authenticatedSession(HttpExchange exchange) {
+        Session session = session(exchange);
+        String authToken = cookies(exchange).get(AUTH_COOKIE);
+        return session != null && session.authToken != null && session.authToken.equals(authToken) ? session : null;
+    }
+
+    private static String accountNumber(String username, int index) {
+        int seed = Math.floorMod(username.hashCode() * 31 + index, 100_000_000);
+        return String.format("%02d 1140 2004 0000 %04d %04d %04d", index + 10, seed / 10_000, seed % 10_000, index);
+    }
+
+    private static long balanceOf(String username, int index) {
+        return Math.floorMod(username.hashCode() * 17L + index * 104_729L, 10_000_000L);
+    }
+
+    private static String decimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2).toPlainString();
+    }
+
+    private static Map<String, String> cookies(HttpExchange exchange) {
+        Map<String, String> cookies = new HashMap<>();
+        for (String header : exchange.getRequestHeaders().getOrDefault("Cookie", List.of())) {
+            for (String pair : header.split(";")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    cookies.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+                }
+            }
+        }
+        return cookies;
+    }
+
+    private static Map<String, String> form(HttpExchange exchange) throws IOException {
+        return parse(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parse(String encoded) {
+        Map<String, String> values = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return values;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                values.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json; charset=utf-8", json);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Route {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static final class Session {
+        private final String id = UUID.randomUUID().toString();
+        private final String csrfToken = UUID.randomUUID().toString();
+        private final String scaId = UUID.randomUUID().toString();
+        private final long createdAt = System.nanoTime();
+        private final String username;
+        private volatile String tranId;
+        private volatile long decidedAt;
+        private volatile boolean cancelled;
+        private volatile boolean executed;
+        private volatile String authToken;
+
+        private Session(String username) {
+            this.username = username;
+        }
+
+        private String twoFactorStatus() {
+            if (tranId == null || System.nanoTime() < decidedAt) {
+                return "Prepared";
+            }
+            return cancelled ? "Canceled" : "Authorized";
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.kontomatik.bankScraper.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// log-normal, pinned by its median and p99: most calls sit near the median with a long tail, like a real backend
+record LatencyDistribution(Duration median, Duration p99) {
+    private static final double Z_99 = 2.3263478740408408;
+
+    Duration sample() {
+        if (median.isZero() || p99.compareTo(median) <= 0) {
+            return median;
+        }
+        double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+        return Duration.ofNanos((long) (median.toNanos() * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+    }
+
+    @Override
+    public String toString() {
+        return "p50=" + median.toMillis() + "ms p99=" + p99.toMillis() + "ms";
+    }
+}
@@ -0,0 +1,36 @@
+package com.kontomatik.bankScraper.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+
+// one per worker, so recording needs no synchronisation; merged once the run is over
+final class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int size;
+
+    void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    static long[] mergeSorted(List<LatencyRecorder> recorders) {
+        long[] merged = new long[recorders.stream().mapToInt(recorder -> recorder.size).sum()];
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.samples, 0, merged, offset, recorder.size);
+            offset += recorder.size;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+}
@@ -0,0 +1,151 @@
+package com.kontomatik.bankScraper.loadtest;
+
+import com.kontomatik.bankScraper.BankScraperApplication;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.services.BankOperationsService;
+import com.kontomatik.bankScraper.services.BankProviderRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// boots the scraper against an in-process FakeMbank and keeps loadtest.concurrency customers scraping back to back
+// (a closed loop) for the warm-up plus the measured duration. Only calls started after the warm-up are reported
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        int concurrency = options.getInt("loadtest.concurrency", 32);
+        int customers = options.getInt("loadtest.customers", 0);
+        Duration warmup = options.getSeconds("loadtest.warmup.seconds", 10);
+        Duration duration = options.getSeconds("loadtest.duration.seconds", 60);
+        PrintStream report = System.out;
+
+        try (FakeMbank bank = FakeMbank.start(withDefault(args, "--fakeMbank.port=0"))) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankScraperApplication.class)
+                    .logStartupInfo(false)
+                    .run(applicationArgs(args, options, bank))) {
+                BankOperationsService bankOperations = context.getBean(BankProviderRegistry.class).defaultProvider();
+                report.printf("Load test: %d concurrent customers against fake mBank (%s)%n", concurrency, bank.describe());
+                report.printf("Warm-up %ds, measuring %ds, %s%n", warmup.toSeconds(), duration.toSeconds(),
+                        customers > 0 ? customers + " returning customers" : "a fresh login for every call");
+                // every login prints the 2FA notice to the console; keep it out of the report
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                try {
+                    Result result = drive(bankOperations, concurrency, customers, warmup, duration);
+                    result.print(report, duration);
+                } finally {
+                    System.setOut(report);
+                }
+                report.println("Fake mBank:  " + bank.stats());
+            }
+        }
+    }
+
+    private static Result drive(BankOperationsService bankOperations, int concurrency, int customers, Duration warmup, Duration duration) {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < concurrency; worker++) {
+                LatencyRecorder recorder = new LatencyRecorder();
+                recorders.add(recorder);
+                int workerId = worker;
+                executor.execute(() -> {
+                    for (int call = 0; System.nanoTime() < end; call++) {
+                        String username = customers > 0
+                                ? "customer-" + ThreadLocalRandom.current().nextInt(customers)
+                                : "customer-" + workerId + "-" + call;
+                        long start = System.nanoTime();
+                        String outcome = "ok";
+                        try {
+                            bankOperations.fetchAccountData(new Credentials(username, "secret"));
+                        } catch (RuntimeException e) {
+                            outcome = e.getClass().getSimpleName();
+                        }
+                        if (start >= measureFrom) {
+                            if (outcome.equals("ok")) {
+                                recorder.record(System.nanoTime() - start);
+                            }
+                            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                        }
+                    }
+                });
+            }
+        }
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return new Result(LatencyRecorder.mergeSorted(recorders), counts);
+    }
+
+    // command-line arguments, because they are the only source that outranks application.properties
+    private static String[] applicationArgs(String[] args, Options options, FakeMbank bank) throws IOException {
+        Map<String, String> forced = Map.of(
+                "scraper.mode", "embedded",
+                "mbank.base.url", bank.baseUrl());
+        Map<String, String> defaults = Map.of(
+                "spring.main.banner-mode", "off",
+                "logging.level.root", "WARN",
+                "banks.cache.ttl.seconds", "0",
+                "store.directory", Files.createTempDirectory("loadtest-store").toString(),
+                "tracing.file", Files.createTempDirectory("loadtest-traces").resolve("spans.jsonl").toString());
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (forced.keySet().stream().noneMatch(key -> arg.startsWith("--" + key + "="))) {
+                applicationArgs.add(arg);
+            }
+        }
+        forced.forEach((key, value) -> applicationArgs.add("--" + key + "=" + value));
+        defaults.forEach((key, value) -> {
+            if (!options.contains(key)) {
+                applicationArgs.add("--" + key + "=" + value);
+            }
+        });
+        return applicationArgs.toArray(String[]::new);
+    }
+
+    private static Options withDefault(String[] args, String defaultArg) {
+        String[] all = Arrays.copyOf(args, args.length + 1);
+        System.arraycopy(args, 0, all, 1, args.length);
+        all[0] = defaultArg;
+        return Options.parse(all);
+    }
+
+    private record Result(long[] latencies, Map<String, Long> outcomes) {
+
+        void print(PrintStream out, Duration duration) {
+            long succeeded = latencies.length;
+            long failed = outcomes.entrySet().stream().filter(e -> !e.getKey().equals("ok")).mapToLong(Map.Entry::getValue).sum();
+            out.printf("Completed:   %d (%.1f/s)%n", succeeded, succeeded / (double) duration.toSeconds());
+            out.printf("Failed:      %d %s%n", failed, failed == 0 ? "" : failures());
+            out.printf("Latency ms:  p50=%d p90=%d p99=%d p999=%d max=%d%n",
+                    millis(0.5), millis(0.9), millis(0.99), millis(0.999), millis(1.0));
+        }
+
+        private Map<String, Long> failures() {
+            Map<String, Long> failures = new TreeMap<>(outcomes);
+            failures.remove("ok");
+            return failures;
+        }
+
+        private long millis(double percentile) {
+            return TimeUnit.NANOSECONDS.toMillis(LatencyRecorder.percentile(latencies, percentile));
+        }
+    }
+}
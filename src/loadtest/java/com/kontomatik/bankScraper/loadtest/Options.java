@@ -0,0 +1,49 @@
+package com.kontomatik.bankScraper.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// --key=value arguments; the same array is handed to Spring, which picks up the application properties among them
+final class Options {
+    private final Map<String, String> values;
+
+    private Options(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static Options parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 2) {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return new Options(values);
+    }
+
+    boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    int getInt(String key, int defaultValue) {
+        return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+    }
+
+    double getDouble(String key, double defaultValue) {
+        return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+    }
+
+    Duration getMillis(String key, long defaultMillis) {
+        return Duration.ofMillis(values.containsKey(key) ? Long.parseLong(values.get(key)) : defaultMillis);
+    }
+
+    Duration getSeconds(String key, long defaultSeconds) {
+        return Duration.ofSeconds(values.containsKey(key) ? Long.parseLong(values.get(key)) : defaultSeconds);
+    }
+}
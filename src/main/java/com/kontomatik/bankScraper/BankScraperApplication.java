@@ -4,41 +4,71 @@ import com.kontomatik.bankScraper.exceptions.InvalidCredentials;
 import com.kontomatik.bankScraper.models.Account;
 import com.kontomatik.bankScraper.models.Credentials;
 import com.kontomatik.bankScraper.services.BankOperationsService;
+import com.kontomatik.bankScraper.services.BankProviderRegistry;
+import com.kontomatik.bankScraper.services.ScrapeListener;
+import com.kontomatik.bankScraper.store.AccountSnapshotStore;
 import com.kontomatik.bankScraper.ui.*;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
 import java.io.Console;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
 @SpringBootApplication
 public class BankScraperApplication implements CommandLineRunner {
 
-    private final ConsolePrinter consolePrinter;
+    private final OutputSinks outputSinks;
     private final UserInputHandler userInputHandler;
     private final BankOperationsService bankOperationsService;
+    private final AccountSnapshotStore snapshotStore;
+    private final ConsolePrinter consolePrinter;
+
+    @Value("${scraper.mode:cli}")
+    private String mode;
 
     public static void main(String[] args) {
         SpringApplication.run(BankScraperApplication.class, args);
     }
 
-    public BankScraperApplication(@Qualifier("mbankOperations") BankOperationsService bankOperationsService,
-                                  ConsolePrinter consolePrinter,
-                                  UserInputHandler userInputHandler) {
-        this.bankOperationsService = bankOperationsService;
-        this.consolePrinter = consolePrinter;
+    public BankScraperApplication(BankProviderRegistry bankProviders,
+                                  OutputSinks outputSinks,
+                                  UserInputHandler userInputHandler,
+                                  AccountSnapshotStore snapshotStore,
+                                  ConsolePrinter consolePrinter) {
+        this.bankOperationsService = bankProviders.defaultProvider();
+        this.outputSinks = outputSinks;
         this.userInputHandler = userInputHandler;
+        this.snapshotStore = snapshotStore;
+        this.consolePrinter = consolePrinter;
     }
 
     @Override
     public void run(String... args) throws InvalidCredentials {
+        // server mode and embedded use (e.g. the load test) drive BankOperationsService themselves
+        if (!mode.equals("cli")) {
+            return;
+        }
         Credentials credentials = userInputHandler.getCredentials();
-        List<Account> accounts = bankOperationsService.fetchAccountData(credentials);
-        consolePrinter.printAccountGroups(accounts);
+        ScrapeListener promptOnConsole = new ScrapeListener() {
+            @Override
+            public void onTwoFactorAuthStarted() {
+                consolePrinter.notifyTwoFactorAuthStart();
+            }
+        };
+        List<Account> accounts = new ArrayList<>();
+        // each account is printed as soon as it is decoded; the store gets the complete scrape only
+        try (AccountSink sink = outputSinks.console()) {
+            bankOperationsService.streamAccountData(credentials, promptOnConsole, account -> {
+                accounts.add(account);
+                sink.write(account);
+            });
+        }
+        snapshotStore.append(credentials.username(), accounts);
     }
 
     @Bean
@@ -0,0 +1,9 @@
+package com.kontomatik.bankScraper.exceptions;
+
+import java.io.IOException;
+
+public class RequestRejectedException extends IOException {
+    public RequestRejectedException(String message) {
+        super(message);
+    }
+}
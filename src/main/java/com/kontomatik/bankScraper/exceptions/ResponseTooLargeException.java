@@ -0,0 +1,9 @@
+package com.kontomatik.bankScraper.exceptions;
+
+import java.io.IOException;
+
+public class ResponseTooLargeException extends IOException {
+    public ResponseTooLargeException(String message) {
+        super(message);
+    }
+}
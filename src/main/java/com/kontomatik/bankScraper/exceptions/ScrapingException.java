@@ -4,4 +4,8 @@ public class ScrapingException extends RuntimeException {
     public ScrapingException(String message) {
         super(message);
     }
+
+    public ScrapingException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,7 @@
+package com.kontomatik.bankScraper.exceptions;
+
+public class SessionExpiredException extends ScrapingException {
+    public SessionExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.kontomatik.bankScraper.exceptions;
+
+public class SnapshotStoreException extends RuntimeException {
+    public SnapshotStoreException(String message) {
+        super(message);
+    }
+
+    public SnapshotStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
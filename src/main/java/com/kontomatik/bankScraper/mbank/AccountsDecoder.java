@@ -0,0 +1,514 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import com.kontomatik.bankScraper.models.AccountView;
+import com.kontomatik.bankScraper.services.JsonCodec;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// streams accountsGroups[].accounts[] out of the accounts payload without binding whole records; balances are parsed
+// straight into an unscaled long and the same view instance is handed to the consumer for every account
+final class AccountsDecoder {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_CACHED_CURRENCIES = 32;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder scratch = new StringBuilder(64);
+    private final List<String> currencies = new ArrayList<>();
+    private final DecodedAccount account = new DecodedAccount();
+    private int position;
+    private int limit;
+
+    private AccountsDecoder(Reader reader) {
+        this.reader = reader;
+    }
+
+    // false when the body is empty or a bare null, matching ResponseHandler.streamElements
+    static boolean decode(Reader reader, Consumer<AccountView> consumer) throws IOException, ResponseHandlingException {
+        return new AccountsDecoder(reader).decodeDocument(consumer);
+    }
+
+    private boolean decodeDocument(Consumer<AccountView> consumer) throws IOException, ResponseHandlingException {
+        int c = nextToken();
+        if (c == -1) {
+            return false;
+        }
+        if (c == 'n') {
+            expectLiteral("ull");
+            return false;
+        }
+        if (c != '{') {
+            throw malformed();
+        }
+        if (beginFields()) {
+            do {
+                readKey();
+                if (!isKey("accountsGroups")) {
+                    skipValue();
+                } else if (!consumeNull()) {
+                    decodeGroups(consumer);
+                }
+            } while (nextField());
+        }
+        return true;
+    }
+
+    private void decodeGroups(Consumer<AccountView> consumer) throws IOException, ResponseHandlingException {
+        expect('[');
+        if (!beginElements()) {
+            return;
+        }
+        do {
+            expect('{');
+            if (beginFields()) {
+                do {
+                    readKey();
+                    if (!isKey("accounts")) {
+                        skipValue();
+                    } else if (!consumeNull()) {
+                        decodeAccounts(consumer);
+                    }
+                } while (nextField());
+            }
+        } while (nextElement());
+    }
+
+    private void decodeAccounts(Consumer<AccountView> consumer) throws IOException, ResponseHandlingException {
+        expect('[');
+        if (!beginElements()) {
+            return;
+        }
+        do {
+            if (!consumeNull()) {
+                decodeAccount();
+                consumer.accept(account);
+            }
+        } while (nextElement());
+    }
+
+    private void decodeAccount() throws IOException, ResponseHandlingException {
+        expect('{');
+        account.reset();
+        if (!beginFields()) {
+            return;
+        }
+        do {
+            readKey();
+            if (isKey("accountNumber")) {
+                account.accountNumber = readNullableString();
+            } else if (isKey("name")) {
+                account.name = readNullableString();
+            } else if (isKey("currency")) {
+                account.currency = readCurrency();
+            } else if (isKey("balance")) {
+                readBalance();
+            } else {
+                skipValue();
+            }
+        } while (nextField());
+    }
+
+    private void readBalance() throws IOException, ResponseHandlingException {
+        if (consumeNull()) {
+            return;
+        }
+        if (peekToken() == '"') {
+            position++;
+            scratch.setLength(0);
+            readStringInto(scratch);
+            account.setWide(parseBigDecimal());
+            return;
+        }
+        scratch.setLength(0);
+        long unscaled = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean negative = false;
+        boolean fraction = false;
+        boolean wide = false;
+        if (peekChar() == '-') {
+            negative = true;
+            scratch.append('-');
+            position++;
+        }
+        for (int c = peekChar(); c != -1; c = peekChar()) {
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (unscaled > (Long.MAX_VALUE - digit) / 10) {
+                    wide = true;
+                }
+                unscaled = unscaled * 10 + digit;
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction && digits > 0) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E' || c == '+' || c == '-') {
+                wide = true;
+            } else {
+                break;
+            }
+            scratch.append((char) c);
+            position++;
+        }
+        if (digits == 0) {
+            throw malformed();
+        }
+        if (wide) {
+            account.setWide(parseBigDecimal());
+        } else {
+            account.setBalance(negative ? -unscaled : unscaled, scale);
+        }
+    }
+
+    private String readCurrency() throws IOException, ResponseHandlingException {
+        if (peekToken() != '"') {
+            return readNullableString();
+        }
+        position++;
+        scratch.setLength(0);
+        readStringInto(scratch);
+        for (String currency : currencies) {
+            if (currency.contentEquals(scratch)) {
+                return currency;
+            }
+        }
+        String currency = scratch.toString();
+        if (currencies.size() < MAX_CACHED_CURRENCIES) {
+            currencies.add(currency);
+        }
+        return currency;
+    }
+
+    private String readNullableString() throws IOException, ResponseHandlingException {
+        int c = nextToken();
+        switch (c) {
+            case '"':
+                return readString();
+            case 'n':
+                expectLiteral("ull");
+                return null;
+            case 't':
+                expectLiteral("rue");
+                return "true";
+            case 'f':
+                expectLiteral("alse");
+                return "false";
+            default:
+                if (c != '-' && (c < '0' || c > '9')) {
+                    throw malformed();
+                }
+                scratch.setLength(0);
+                scratch.append((char) c);
+                for (int next = peekChar(); isNumberChar(next); next = peekChar()) {
+                    scratch.append((char) next);
+                    position++;
+                }
+                return scratch.toString();
+        }
+    }
+
+    private String readString() throws IOException, ResponseHandlingException {
+        for (int i = position; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                String value = new String(buffer, position, i - position);
+                position = i + 1;
+                return value;
+            }
+            if (c == '\\') {
+                break;
+            }
+        }
+        scratch.setLength(0);
+        readStringInto(scratch);
+        return scratch.toString();
+    }
+
+    private void readStringInto(StringBuilder target) throws IOException, ResponseHandlingException {
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c != '\\') {
+                target.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case 'b' -> target.append('\b');
+                case 'f' -> target.append('\f');
+                case 'n' -> target.append('\n');
+                case 'r' -> target.append('\r');
+                case 't' -> target.append('\t');
+                case 'u' -> target.append(readUnicodeEscape());
+                case '"', '\\', '/', '\'' -> target.append((char) escaped);
+                default -> throw malformed();
+            }
+        }
+    }
+
+    private char readUnicodeEscape() throws IOException, ResponseHandlingException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw malformed();
+            }
+            value = value << 4 | digit;
+        }
+        return (char) value;
+    }
+
+    private void readKey() throws IOException, ResponseHandlingException {
+        expect('"');
+        scratch.setLength(0);
+        readStringInto(scratch);
+        expect(':');
+    }
+
+    private boolean isKey(String name) {
+        return name.contentEquals(scratch);
+    }
+
+    private void skipValue() throws IOException, ResponseHandlingException {
+        int c = nextToken();
+        switch (c) {
+            case '"' -> skipString();
+            case 't' -> expectLiteral("rue");
+            case 'f' -> expectLiteral("alse");
+            case 'n' -> expectLiteral("ull");
+            case '{', '[' -> skipContainer();
+            default -> {
+                if (c != '-' && (c < '0' || c > '9')) {
+                    throw malformed();
+                }
+                while (isNumberChar(peekChar())) {
+                    position++;
+                }
+            }
+        }
+    }
+
+    private void skipContainer() throws IOException, ResponseHandlingException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private void skipString() throws IOException, ResponseHandlingException {
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    private boolean beginFields() throws IOException, ResponseHandlingException {
+        return !consumeIf('}');
+    }
+
+    private boolean nextField() throws IOException, ResponseHandlingException {
+        int c = nextToken();
+        if (c == ',') {
+            return true;
+        }
+        if (c == '}') {
+            return false;
+        }
+        throw malformed();
+    }
+
+    private boolean beginElements() throws IOException, ResponseHandlingException {
+        return !consumeIf(']');
+    }
+
+    private boolean nextElement() throws IOException, ResponseHandlingException {
+        int c = nextToken();
+        if (c == ',') {
+            return true;
+        }
+        if (c == ']') {
+            return false;
+        }
+        throw malformed();
+    }
+
+    private boolean consumeNull() throws IOException, ResponseHandlingException {
+        if (!consumeIf('n')) {
+            return false;
+        }
+        expectLiteral("ull");
+        return true;
+    }
+
+    private boolean consumeIf(char expected) throws IOException {
+        if (peekToken() != expected) {
+            return false;
+        }
+        position++;
+        return true;
+    }
+
+    private void expect(char expected) throws IOException, ResponseHandlingException {
+        if (nextToken() != expected) {
+            throw malformed();
+        }
+    }
+
+    private void expectLiteral(String rest) throws IOException, ResponseHandlingException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw malformed();
+            }
+        }
+    }
+
+    private BigDecimal parseBigDecimal() throws ResponseHandlingException {
+        try {
+            return new BigDecimal(scratch.toString());
+        } catch (NumberFormatException e) {
+            throw malformed();
+        }
+    }
+
+    private int nextToken() throws IOException {
+        int c = peekToken();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peekToken() throws IOException {
+        while (true) {
+            int c = peekChar();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            position++;
+        }
+    }
+
+    private int read() throws IOException, ResponseHandlingException {
+        int c = peekChar();
+        if (c == -1) {
+            throw malformed();
+        }
+        position++;
+        return c;
+    }
+
+    private int peekChar() throws IOException {
+        if (position == limit) {
+            position = 0;
+            limit = Math.max(reader.read(buffer, 0, buffer.length), 0);
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private static boolean isNumberChar(int c) {
+        return c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    private static ResponseHandlingException malformed() {
+        return new ResponseHandlingException(JsonCodec.MALFORMED_BODY);
+    }
+
+    private static final class DecodedAccount implements AccountView {
+        private String accountNumber;
+        private String name;
+        private String currency;
+        private boolean balancePresent;
+        private long unscaledBalance;
+        private int balanceScale;
+        private BigDecimal wideBalance;
+
+        private void reset() {
+            accountNumber = null;
+            name = null;
+            currency = null;
+            balancePresent = false;
+            unscaledBalance = 0;
+            balanceScale = 0;
+            wideBalance = null;
+        }
+
+        private void setBalance(long unscaled, int scale) {
+            balancePresent = true;
+            unscaledBalance = unscaled;
+            balanceScale = scale;
+            wideBalance = null;
+        }
+
+        private void setWide(BigDecimal balance) {
+            balancePresent = true;
+            wideBalance = balance;
+            balanceScale = balance.scale();
+        }
+
+        @Override
+        public String accountNumber() {
+            return accountNumber;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String currency() {
+            return currency;
+        }
+
+        @Override
+        public boolean hasBalance() {
+            return balancePresent;
+        }
+
+        @Override
+        public long unscaledBalance() {
+            if (!balancePresent) {
+                throw new IllegalStateException("Account " + accountNumber + " has no balance");
+            }
+            return wideBalance == null ? unscaledBalance : wideBalance.unscaledValue().longValueExact();
+        }
+
+        @Override
+        public int balanceScale() {
+            return balanceScale;
+        }
+
+        @Override
+        public BigDecimal balance() {
+            if (!balancePresent) {
+                return null;
+            }
+            return wideBalance == null ? BigDecimal.valueOf(unscaledBalance, balanceScale) : wideBalance;
+        }
+    }
+}
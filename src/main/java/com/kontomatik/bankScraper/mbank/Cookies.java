@@ -1,19 +1,348 @@
 package com.kontomatik.bankScraper.mbank;
 
-import java.util.HashMap;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.time.Clock;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 class Cookies {
-    private final Map<String, String> cookies = new HashMap<>();
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private final Clock clock;
 
     Cookies() {
+        this(Clock.systemUTC());
+    }
+
+    Cookies(Clock clock) {
+        this.clock = clock;
+    }
+
+    Snapshot snapshot() {
+        long now = clock.millis();
+        Snapshot snapshot = current.get();
+        while (snapshot.hasExpired(now)) {
+            Snapshot pruned = snapshot.withoutExpired(now);
+            if (current.compareAndSet(snapshot, pruned)) {
+                return pruned;
+            }
+            snapshot = current.get();
+        }
+        return snapshot;
+    }
+
+    long version() {
+        return current.get().version();
     }
 
     Map<String, String> getCookies() {
-        return Map.copyOf(cookies);
+        return snapshot().asMap();
+    }
+
+    Map<String, String> cookiesFor(String url) {
+        return snapshot().cookiesFor(url);
     }
 
     void addCookies(Map<String, String> newCookies) {
-        cookies.putAll(newCookies);
+        if (!newCookies.isEmpty()) {
+            current.updateAndGet(snapshot -> snapshot.merge(newCookies));
+        }
+    }
+
+    void addCookies(String requestUrl, List<HttpCookie> setCookies) {
+        if (!setCookies.isEmpty()) {
+            String host = URI.create(requestUrl).getHost();
+            long now = clock.millis();
+            current.updateAndGet(snapshot -> snapshot.merge(host, setCookies, now));
+        }
+    }
+
+    static final class Snapshot {
+        private static final int STRIDE = 4;
+        private static final int NAME = 0;
+        private static final int VALUE = 1;
+        private static final int DOMAIN = 2;
+        private static final int PATH = 3;
+        private static final long SESSION = Long.MAX_VALUE;
+        private static final Snapshot EMPTY = new Snapshot(0, new String[0], null);
+
+        private final long version;
+        // name, value, domain, path per cookie; a null domain matches any host, a null path is "/"
+        private final String[] entries;
+        // null while every cookie lives for the session
+        private final long[] expiries;
+        private final long earliestExpiry;
+        private Map<String, String> view;
+
+        private Snapshot(long version, String[] entries, long[] expiries) {
+            this.version = version;
+            this.entries = entries;
+            this.expiries = expiries;
+            this.earliestExpiry = expiries == null ? SESSION : Arrays.stream(expiries).min().orElse(SESSION);
+        }
+
+        long version() {
+            return version;
+        }
+
+        int size() {
+            return entries.length / STRIDE;
+        }
+
+        Map<String, String> asMap() {
+            Map<String, String> map = view;
+            if (map == null) {
+                map = hasDuplicateNames() ? mostSpecificByName(null, null) : new View();
+                view = map;
+            }
+            return map;
+        }
+
+        Map<String, String> cookiesFor(String url) {
+            URI uri = URI.create(url);
+            String host = uri.getHost();
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            for (int i = 0; i < size(); i++) {
+                if (!matches(i, host, path)) {
+                    return mostSpecificByName(host, path);
+                }
+            }
+            return asMap();
+        }
+
+        private boolean hasExpired(long now) {
+            return earliestExpiry <= now;
+        }
+
+        private boolean matches(int index, String host, String path) {
+            return domainMatches(entries[index * STRIDE + DOMAIN], host)
+                    && pathMatches(entries[index * STRIDE + PATH], path);
+        }
+
+        private boolean hasDuplicateNames() {
+            for (int i = 0; i < size(); i++) {
+                for (int j = i + 1; j < size(); j++) {
+                    if (entries[i * STRIDE + NAME].equals(entries[j * STRIDE + NAME])) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private Map<String, String> mostSpecificByName(String host, String path) {
+            Map<String, Integer> chosen = new LinkedHashMap<>();
+            for (int i = 0; i < size(); i++) {
+                if (host == null || matches(i, host, path)) {
+                    chosen.merge(entries[i * STRIDE + NAME], i,
+                            (current, next) -> pathLength(next) > pathLength(current) ? next : current);
+                }
+            }
+            Map<String, String> matching = new LinkedHashMap<>();
+            chosen.forEach((name, index) -> matching.put(name, entries[index * STRIDE + VALUE]));
+            return Collections.unmodifiableMap(matching);
+        }
+
+        private int pathLength(int index) {
+            String path = entries[index * STRIDE + PATH];
+            return path == null ? 1 : path.length();
+        }
+
+        private Snapshot merge(Map<String, String> newCookies) {
+            Editor editor = new Editor(this, newCookies.size());
+            newCookies.forEach((name, value) -> editor.put(name, value, null, null, SESSION));
+            return editor.build(version + 1);
+        }
+
+        private Snapshot merge(String host, List<HttpCookie> setCookies, long now) {
+            Editor editor = new Editor(this, setCookies.size());
+            for (HttpCookie cookie : setCookies) {
+                String domain = scopeDomain(cookie.getDomain(), host);
+                if (domain == null) {
+                    continue;
+                }
+                String path = cookie.getPath() == null || cookie.getPath().equals("/") ? null : cookie.getPath();
+                long maxAge = cookie.getMaxAge();
+                if (maxAge == 0) {
+                    editor.remove(cookie.getName(), domain, path);
+                } else {
+                    long expiry = maxAge < 0 ? SESSION : now + maxAge * 1000;
+                    editor.put(cookie.getName(), cookie.getValue(), domain, path, expiry);
+                }
+            }
+            return editor.build(version + 1);
+        }
+
+        private Snapshot withoutExpired(long now) {
+            Editor editor = new Editor(this, 0);
+            editor.removeExpired(now);
+            return editor.build(version + 1);
+        }
+
+        // host-only cookies keep the bare host, domain cookies a leading dot; foreign domains are rejected
+        private static String scopeDomain(String domainAttribute, String host) {
+            if (domainAttribute == null || domainAttribute.isEmpty()) {
+                return host;
+            }
+            String domain = "." + domainAttribute.toLowerCase().replaceFirst("^\\.", "");
+            return host == null || domainMatches(domain, host) ? domain : null;
+        }
+
+        private static boolean domainMatches(String domain, String host) {
+            if (domain == null) {
+                return true;
+            }
+            if (host == null) {
+                return false;
+            }
+            if (domain.startsWith(".")) {
+                int bareLength = domain.length() - 1;
+                boolean sameHost = host.length() == bareLength && host.regionMatches(true, 0, domain, 1, bareLength);
+                boolean subdomain = host.length() > domain.length()
+                        && host.regionMatches(true, host.length() - domain.length(), domain, 0, domain.length());
+                return sameHost || subdomain;
+            }
+            return domain.equalsIgnoreCase(host);
+        }
+
+        private static boolean pathMatches(String cookiePath, String requestPath) {
+            if (cookiePath == null || cookiePath.equals(requestPath)) {
+                return true;
+            }
+            return requestPath.startsWith(cookiePath)
+                    && (cookiePath.endsWith("/") || requestPath.charAt(cookiePath.length()) == '/');
+        }
+
+        private class View extends AbstractMap<String, String> {
+            @Override
+            public String get(Object key) {
+                for (int i = 0; i < entries.length; i += STRIDE) {
+                    if (entries[i + NAME].equals(key)) {
+                        return entries[i + VALUE];
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public int size() {
+                return Snapshot.this.size();
+            }
+
+            @Override
+            public Set<Entry<String, String>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, String>> iterator() {
+                        return new Iterator<>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < entries.length;
+                            }
+
+                            @Override
+                            public Entry<String, String> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Entry<String, String> entry = new SimpleImmutableEntry<>(entries[next + NAME], entries[next + VALUE]);
+                                next += STRIDE;
+                                return entry;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return Snapshot.this.size();
+                    }
+                };
+            }
+        }
+
+        private static class Editor {
+            private String[] entries;
+            private long[] expiries;
+            private int size;
+
+            private Editor(Snapshot base, int incoming) {
+                this.entries = Arrays.copyOf(base.entries, base.entries.length + incoming * STRIDE);
+                this.expiries = base.expiries == null
+                        ? new long[base.size() + incoming]
+                        : Arrays.copyOf(base.expiries, base.size() + incoming);
+                if (base.expiries == null) {
+                    Arrays.fill(expiries, SESSION);
+                }
+                this.size = base.size();
+            }
+
+            private void put(String name, String value, String domain, String path, long expiry) {
+                int index = indexOf(name, domain, path);
+                if (index < 0) {
+                    index = size++;
+                    entries[index * STRIDE + NAME] = name.intern();
+                    entries[index * STRIDE + DOMAIN] = domain == null ? null : domain.intern();
+                    entries[index * STRIDE + PATH] = path == null ? null : path.intern();
+                }
+                entries[index * STRIDE + VALUE] = value;
+                expiries[index] = expiry;
+            }
+
+            private void remove(String name, String domain, String path) {
+                int index = indexOf(name, domain, path);
+                if (index >= 0) {
+                    removeAt(index);
+                }
+            }
+
+            private void removeExpired(long now) {
+                for (int i = size - 1; i >= 0; i--) {
+                    if (expiries[i] <= now) {
+                        removeAt(i);
+                    }
+                }
+            }
+
+            private void removeAt(int index) {
+                System.arraycopy(entries, (index + 1) * STRIDE, entries, index * STRIDE, (size - index - 1) * STRIDE);
+                System.arraycopy(expiries, index + 1, expiries, index, size - index - 1);
+                size--;
+            }
+
+            private int indexOf(String name, String domain, String path) {
+                for (int i = 0; i < size; i++) {
+                    if (entries[i * STRIDE + NAME].equals(name)
+                            && Objects.equals(entries[i * STRIDE + DOMAIN], domain)
+                            && Objects.equals(entries[i * STRIDE + PATH], path)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
+            private Snapshot build(long version) {
+                String[] compacted = Arrays.copyOf(entries, size * STRIDE);
+                long[] compactedExpiries = Arrays.copyOf(expiries, size);
+                boolean allSession = Arrays.stream(compactedExpiries).allMatch(expiry -> expiry == SESSION);
+                return new Snapshot(version, compacted, allSession ? null : compactedExpiries);
+            }
+        }
     }
 }
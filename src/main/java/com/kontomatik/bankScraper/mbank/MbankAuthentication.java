@@ -7,21 +7,35 @@ import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
 import com.kontomatik.bankScraper.models.Credentials;
 import com.kontomatik.bankScraper.services.JsoupClient;
 import com.kontomatik.bankScraper.services.ResponseHandler;
-import com.kontomatik.bankScraper.ui.ConsolePrinter;
-import org.jsoup.Connection;
+import com.kontomatik.bankScraper.services.ScrapeListener;
+import com.kontomatik.bankScraper.services.TransportResponse;
+import com.kontomatik.bankScraper.tracing.Scope;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.net.HttpCookie;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 class MbankAuthentication {
     private final Gson gson;
     private final JsoupClient jsoupClient;
     private final ResponseHandler responseHandler;
-    private final ConsolePrinter consolePrinter;
-
+    private final TwoFactorStatusPoller statusPoller;
+    private final MbankMetrics metrics;
+    private final MbankEndpoints endpoints;
+    private final Tracer tracer;
+    private final ExecutorService stepExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     @Value("${mbank.base.url}")
     private String baseUrl;
@@ -53,27 +67,98 @@ class MbankAuthentication {
     @Value("${mbank.accounts.url}")
     private String mbankScraperUrl;
 
-    MbankAuthentication(Gson gson, JsoupClient jsoupClient, ResponseHandler responseHandler, ConsolePrinter consolePrinter) {
+    MbankAuthentication(Gson gson,
+                        JsoupClient jsoupClient,
+                        ResponseHandler responseHandler,
+                        TwoFactorStatusPoller statusPoller,
+                        MbankMetrics metrics,
+                        MbankEndpoints endpoints,
+                        Tracer tracer) {
         this.gson = gson;
         this.jsoupClient = jsoupClient;
         this.responseHandler = responseHandler;
-        this.consolePrinter = consolePrinter;
+        this.statusPoller = statusPoller;
+        this.metrics = metrics;
+        this.endpoints = endpoints;
+        this.tracer = tracer;
     }
 
     Cookies authenticate(Credentials credentials) {
+        return authenticate(credentials, ScrapeListener.NONE);
+    }
+
+    Cookies authenticate(Credentials credentials, ScrapeListener listener) {
         try {
             Cookies cookies = new Cookies();
-            initialLogin(credentials, cookies);
-            String csrfToken = fetchCsrfToken(cookies).csrfToken();
-            String scaId = fetchScaAuthorizationData(cookies).scaAuthorizationId();
-            String twoFactorAuthToken = initTwoFactorAuth(scaId, csrfToken, cookies);
-            consolePrinter.notifyTwoFactorAuthStart();
-            waitForUserAuthentication(twoFactorAuthToken, cookies);
-            finalizeAuthorization(scaId, csrfToken, cookies);
+            metrics.timeAuthenticationStep("initialLogin", () -> initialLogin(credentials, cookies));
+            Cookies.Snapshot loginCookies = cookies.snapshot();
+            CompletableFuture<StepResult<CsrfResponse>> csrfStep =
+                    startStep("fetchCsrfToken", () -> fetchCsrfToken(loginCookies));
+            CompletableFuture<StepResult<ScaResponse>> scaStep =
+                    startStep("fetchScaAuthorizationData", () -> fetchScaAuthorizationData(loginCookies));
+            awaitSettled(csrfStep, scaStep);
+            String csrfToken = mergeStep(csrfStep, cookies).csrfToken();
+            String scaId = mergeStep(scaStep, cookies).scaAuthorizationId();
+            String twoFactorAuthToken = metrics.timeAuthenticationStep("initTwoFactorAuth", () -> initTwoFactorAuth(scaId, csrfToken, cookies));
+            listener.onTwoFactorAuthStarted();
+            metrics.timeTwoFactorWait(() -> waitForUserAuthentication(twoFactorAuthToken, cookies));
+            metrics.timeAuthenticationStep("finalizeAuthorization", () -> finalizeAuthorization(scaId, csrfToken, cookies));
+            metrics.timeAuthenticationStep("verifyCorrectLogin", () -> verifyCorrectLogin(cookies));
+            metrics.countLogin(MbankMetrics.SUCCESS);
             return cookies;
         } catch (IOException | InterruptedException | InvalidCredentials | ResponseHandlingException e) {
+            metrics.countLogin(MbankMetrics.outcomeOf(e));
             throw new AuthenticationException("Authentication failed: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            metrics.countLogin(MbankMetrics.outcomeOf(e));
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stepExecutor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<StepResult<T>> startStep(String step, MbankMetrics.AuthenticationStep<StepResult<T>> body) {
+        CompletableFuture<StepResult<T>> result = new CompletableFuture<>();
+        Future<?> task = stepExecutor.submit(tracer.wrap(() -> {
+            try {
+                result.complete(metrics.timeAuthenticationStep(step, body));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }));
+        // cancelling the step aborts its request instead of letting it run to the end unobserved
+        result.whenComplete((ignored, failure) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private void awaitSettled(CompletableFuture<?>... steps) throws InterruptedException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(steps);
+        try {
+            all.get();
+        } catch (InterruptedException e) {
+            for (CompletableFuture<?> step : steps) {
+                step.cancel(true);
+            }
+            throw e;
+        } catch (ExecutionException ignored) {
+            // failures are surfaced per step, in dependency order, by mergeStep
+        }
+    }
+
+    private <T> T mergeStep(CompletableFuture<StepResult<T>> step, Cookies cookies) throws IOException, ResponseHandlingException {
+        if (step.state() == Future.State.FAILED) {
+            rethrowStepFailure(step.exceptionNow());
         }
+        StepResult<T> result = step.resultNow();
+        cookies.addCookies(result.url(), result.setCookies());
+        return result.value();
     }
 
     private void initialLogin(Credentials credentials, Cookies cookies) throws IOException, InvalidCredentials, ResponseHandlingException {
@@ -81,13 +166,12 @@ class MbankAuthentication {
                 .data(Map.of("username", credentials.username(), "password", credentials.password()))
                 .ignoreContentType(true)
                 .build();
-        Connection.Response response = jsoupClient.sendRequest(
-                baseUrl + loginUrl,
-                Connection.Method.POST,
-                params);
-        LoginResponse longinResponse = responseHandler.handleResponse(response.body(), LoginResponse.class);
-        validateLoginResponse(longinResponse);
-        cookies.addCookies(response.cookies());
+        String url = baseUrl + loginUrl;
+        try (TransportResponse response = jsoupClient.sendRequest(endpoints.login, url, params)) {
+            LoginResponse longinResponse = responseHandler.handleResponse(response.bodyReader(), LoginResponse.class);
+            validateLoginResponse(longinResponse);
+            cookies.addCookies(url, response.setCookies());
+        }
     }
 
     private void validateLoginResponse(LoginResponse longinResponse) throws InvalidCredentials {
@@ -97,19 +181,17 @@ class MbankAuthentication {
         }
     }
 
-    private CsrfResponse fetchCsrfToken(Cookies cookies) throws IOException, ResponseHandlingException {
+    private StepResult<CsrfResponse> fetchCsrfToken(Cookies.Snapshot loginCookies) throws IOException, ResponseHandlingException {
+        String url = baseUrl + fetchCsrfTokenUrl;
         RequestParams params = new RequestParams.Builder()
-                .cookies(cookies.getCookies())
+                .cookies(loginCookies.cookiesFor(url))
                 .ignoreContentType(true)
                 .build();
-        Connection.Response response = jsoupClient.sendRequest(
-                baseUrl + fetchCsrfTokenUrl,
-                Connection.Method.GET,
-                params);
-        CsrfResponse csrfResponse = responseHandler.handleResponse(response.body(), CsrfResponse.class);
-        validateCsrfResponse(csrfResponse);
-        cookies.addCookies(response.cookies());
-        return csrfResponse;
+        return jsoupClient.exchange(endpoints.csrfToken, url, params, response -> {
+            CsrfResponse csrfResponse = responseHandler.handleResponse(response.bodyReader(), CsrfResponse.class);
+            validateCsrfResponse(csrfResponse);
+            return new StepResult<>(csrfResponse, url, response.setCookies());
+        });
     }
 
     private void validateCsrfResponse(CsrfResponse csrfResponse) throws AuthenticationException {
@@ -118,19 +200,17 @@ class MbankAuthentication {
         }
     }
 
-    private ScaResponse fetchScaAuthorizationData(Cookies cookies) throws IOException, ResponseHandlingException {
+    private StepResult<ScaResponse> fetchScaAuthorizationData(Cookies.Snapshot loginCookies) throws IOException, ResponseHandlingException {
+        String url = baseUrl + fetchScaIdUrl;
         RequestParams params = new RequestParams.Builder()
-                .cookies(cookies.getCookies())
+                .cookies(loginCookies.cookiesFor(url))
                 .ignoreContentType(true)
                 .build();
-        Connection.Response response = jsoupClient.sendRequest(
-                baseUrl + fetchScaIdUrl,
-                Connection.Method.POST,
-                params);
-        ScaResponse scaResponse = responseHandler.handleResponse(response.body(), ScaResponse.class);
-        validateScaResponse(scaResponse);
-        cookies.addCookies(response.cookies());
-        return responseHandler.handleResponse(response.body(), ScaResponse.class);
+        return jsoupClient.exchange(endpoints.scaAuthorizationData, url, params, response -> {
+            ScaResponse scaResponse = responseHandler.handleResponse(response.bodyReader(), ScaResponse.class);
+            validateScaResponse(scaResponse);
+            return new StepResult<>(scaResponse, url, response.setCookies());
+        });
     }
 
     private void validateScaResponse(ScaResponse scaResponse) {
@@ -140,20 +220,19 @@ class MbankAuthentication {
     }
 
     private String initTwoFactorAuth(String scaId, String csrfToken, Cookies cookies) throws IOException, ResponseHandlingException {
+        String url = baseUrl + beginTwoFactorAuthUrl;
         RequestParams params = new RequestParams.Builder()
-                .cookies(cookies.getCookies())
+                .cookies(cookies.cookiesFor(url))
                 .ignoreContentType(true)
                 .data(Map.of("Data", wrapScaIdIntoJson(scaId), "Url", "sca/authorization/disposable", "Method", "POST"))
                 .headers(Map.of("User-Agent", userAgent, "X-Request-Verification-Token", csrfToken))
                 .build();
-        Connection.Response response = jsoupClient.sendRequest(
-                baseUrl + beginTwoFactorAuthUrl,
-                Connection.Method.POST,
-                params);
-        InitTwoFactorResponse initResponse = responseHandler.handleResponse(response.body(), InitTwoFactorResponse.class);
-        validateInitTwoFactorResponse(initResponse);
-        cookies.addCookies(response.cookies());
-        return initResponse.tranId();
+        try (TransportResponse response = jsoupClient.sendRequest(endpoints.initTwoFactorAuth, url, params)) {
+            InitTwoFactorResponse initResponse = responseHandler.handleResponse(response.bodyReader(), InitTwoFactorResponse.class);
+            validateInitTwoFactorResponse(initResponse);
+            cookies.addCookies(url, response.setCookies());
+            return initResponse.tranId();
+        }
     }
 
     private void validateInitTwoFactorResponse(InitTwoFactorResponse initResponse) {
@@ -164,96 +243,104 @@ class MbankAuthentication {
     }
 
     private void waitForUserAuthentication(String twoFactorAuthToken, Cookies cookies) throws InterruptedException, IOException, ResponseHandlingException {
-        String status;
-        int attempts = 0;
-        do {
-            RequestParams params = new RequestParams.Builder()
-                    .cookies(cookies.getCookies())
-                    .ignoreContentType(true)
-                    .data(Map.of("TranId", twoFactorAuthToken))
-                    .build();
-            Connection.Response response = jsoupClient.sendRequest(
-                    baseUrl + statusTwoFactorAuthUrl,
-                    Connection.Method.POST,
-                    params);
-            cookies.addCookies(response.cookies());
-            AuthStatusResponse statusResponseBody = responseHandler.handleResponse(response.body(), AuthStatusResponse.class);
-            status = statusResponseBody.status();
-            validateStatusFetch(status);
-            validateStatusNotCancelled(status);
-            attempts++;
-            if (attempts >= 30) {
-                throw new AuthenticationException("Timeout (30s) reached for 2FA verification");
+        // the checks run on the poller's threads, so they are linked back to the waiting step by hand
+        Span waitSpan = tracer.current();
+        CompletableFuture<Void> authorization = statusPoller.awaitAuthorization(() -> {
+            try (Scope ignored = tracer.activate(waitSpan)) {
+                return fetchTwoFactorStatus(twoFactorAuthToken, cookies);
             }
-            Thread.sleep(1000);
-        } while (!"Authorized".equals(status));
+        });
+        try {
+            authorization.get();
+        } catch (InterruptedException e) {
+            authorization.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            rethrowStepFailure(e.getCause());
+        }
     }
 
-    private void validateStatusNotCancelled(String status) {
-        if ("Canceled".equals(status)) {
-            throw new AuthenticationException("2FA cancelled by user");
-        }
+    private String fetchTwoFactorStatus(String twoFactorAuthToken, Cookies cookies) throws IOException, ResponseHandlingException {
+        String url = baseUrl + statusTwoFactorAuthUrl;
+        RequestParams params = new RequestParams.Builder()
+                .cookies(cookies.cookiesFor(url))
+                .ignoreContentType(true)
+                .data(Map.of("TranId", twoFactorAuthToken))
+                .build();
+        return jsoupClient.exchange(endpoints.twoFactorStatus, url, params, response -> {
+            AuthStatusResponse statusResponseBody = responseHandler.handleResponse(response.bodyReader(), AuthStatusResponse.class);
+            cookies.addCookies(url, response.setCookies());
+            return statusResponseBody == null ? null : statusResponseBody.status();
+        });
     }
 
-    private void validateStatusFetch(String status) {
-        if (status == null || status.isEmpty()) {
-            throw new AuthenticationException("Failed to fetch 2FA status");
+    private void rethrowStepFailure(Throwable cause) throws IOException, ResponseHandlingException {
+        if (cause instanceof IOException ioException) {
+            throw ioException;
         }
+        if (cause instanceof ResponseHandlingException responseHandlingException) {
+            throw responseHandlingException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new AuthenticationException("Authentication step failed: " + cause.getMessage(), cause);
     }
 
-    private void finalizeAuthorization(String scaId, String csrfToken, Cookies cookies) throws IOException {
+    private void finalizeAuthorization(String scaId, String csrfToken, Cookies cookies) throws IOException, ResponseHandlingException {
+        String executeUrl = baseUrl + executeTwoFactoAuthUrl;
         RequestParams params = new RequestParams.Builder()
-                .cookies(cookies.getCookies())
+                .cookies(cookies.cookiesFor(executeUrl))
                 .headers(Map.of("User-Agent", userAgent, "X-Request-Verification-Token", csrfToken))
                 .ignoreContentType(true)
                 .requestBody(gson.toJson(new Object()))
                 .build();
-        Connection.Response executeAuthResponse = jsoupClient.sendRequest(
-                baseUrl + executeTwoFactoAuthUrl,
-                Connection.Method.POST,
-                params);
-        validateExecuteAuthResponse(executeAuthResponse);
-        cookies.addCookies(executeAuthResponse.cookies());
+        try (TransportResponse executeAuthResponse = jsoupClient.sendRequest(endpoints.executeTwoFactorAuth, executeUrl, params)) {
+            validateExecuteAuthResponse(executeAuthResponse);
+            cookies.addCookies(executeUrl, executeAuthResponse.setCookies());
+        }
+        String finalizeUrl = baseUrl + scaFinalizeUrl;
         RequestParams finalizeParams = new RequestParams.Builder()
-                .cookies(cookies.getCookies())
+                .cookies(cookies.cookiesFor(finalizeUrl))
                 .ignoreContentType(true)
                 .data(Map.of("scaAuthorizationId", scaId))
                 .build();
-        Connection.Response finalizeAuthResponse = jsoupClient.sendRequest(
-                baseUrl + scaFinalizeUrl,
-                Connection.Method.POST,
-                finalizeParams);
-        validateFinalizeAuthResponse(finalizeAuthResponse);
-        cookies.addCookies(finalizeAuthResponse.cookies());
-        verifyCorrectLogin(cookies);
+        jsoupClient.exchange(endpoints.finalizeAuthorization, finalizeUrl, finalizeParams, finalizeAuthResponse -> {
+            validateFinalizeAuthResponse(finalizeAuthResponse);
+            cookies.addCookies(finalizeUrl, finalizeAuthResponse.setCookies());
+            return null;
+        });
     }
 
-    private void validateFinalizeAuthResponse(Connection.Response finalizeAuthResponse) {
+    private void validateFinalizeAuthResponse(TransportResponse finalizeAuthResponse) {
         if (finalizeAuthResponse.statusCode() != 200)
             throw new AuthenticationException("Failed to finalize 2FA");
     }
 
-    private void validateExecuteAuthResponse(Connection.Response response) {
+    private void validateExecuteAuthResponse(TransportResponse response) {
         if (response.statusCode() != 200) {
             throw new AuthenticationException("Failed to execute 2FA");
         }
     }
 
-    private void verifyCorrectLogin(Cookies cookies) throws IOException {
+    private void verifyCorrectLogin(Cookies cookies) throws IOException, ResponseHandlingException {
+        String url = baseUrl + mbankScraperUrl;
         RequestParams params = new RequestParams.Builder()
-                .cookies(cookies.getCookies())
+                .cookies(cookies.cookiesFor(url))
                 .ignoreContentType(true)
                 .build();
-        Connection.Response response = jsoupClient.sendRequest(
-                baseUrl + mbankScraperUrl,
-                Connection.Method.GET,
-                params);
-        if (response.statusCode() != 200) {
-            throw new AuthenticationException("Login verification failed");
-        }
+        jsoupClient.exchange(endpoints.verifyLogin, url, params, response -> {
+            if (response.statusCode() != 200) {
+                throw new AuthenticationException("Login verification failed");
+            }
+            return null;
+        });
     }
 
     private String wrapScaIdIntoJson(String scaId) {
         return "{\"scaAuthorizationId\": \"" + scaId + "\"}";
     }
+
+    private record StepResult<T>(T value, String url, List<HttpCookie> setCookies) {
+    }
 }
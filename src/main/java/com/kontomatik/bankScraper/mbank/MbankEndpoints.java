@@ -0,0 +1,48 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.services.Endpoint;
+import com.kontomatik.bankScraper.services.RetryPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+import static org.jsoup.Connection.Method.GET;
+import static org.jsoup.Connection.Method.POST;
+
+// reads that can be repeated freely are idempotent. Logging in, fetching the SCA data, starting and executing 2FA and
+// finalizing it change state at the bank, so repeating them could start a second approval or spend the one just given;
+// those only retry when the request never left the client
+@Component
+class MbankEndpoints {
+    final Endpoint login;
+    final Endpoint csrfToken;
+    final Endpoint scaAuthorizationData;
+    final Endpoint initTwoFactorAuth;
+    final Endpoint twoFactorStatus;
+    final Endpoint executeTwoFactorAuth;
+    final Endpoint finalizeAuthorization;
+    final Endpoint verifyLogin;
+    final Endpoint accounts;
+    final Endpoint transactions;
+
+    MbankEndpoints(@Value("${http.retry.maxAttempts:3}") int maxAttempts,
+                   @Value("${http.retry.initialBackoff.millis:200}") long initialBackoffMillis,
+                   @Value("${http.retry.maxBackoff.millis:2000}") long maxBackoffMillis,
+                   @Value("${http.retry.multiplier:2}") double multiplier,
+                   @Value("${http.retry.afterTwoFactor.maxAttempts:5}") int afterTwoFactorMaxAttempts) {
+        RetryPolicy retry = new RetryPolicy(maxAttempts, Duration.ofMillis(initialBackoffMillis), Duration.ofMillis(maxBackoffMillis), multiplier);
+        // past the approval a failure costs the customer another 2FA, so these steps try harder
+        RetryPolicy afterTwoFactor = new RetryPolicy(afterTwoFactorMaxAttempts, retry.initialBackoff(), retry.maxBackoff(), multiplier);
+        login = Endpoint.nonIdempotent("login", POST, retry);
+        csrfToken = Endpoint.idempotent("csrfToken", GET, retry).withHedging();
+        scaAuthorizationData = Endpoint.nonIdempotent("scaAuthorizationData", POST, retry);
+        initTwoFactorAuth = Endpoint.nonIdempotent("initTwoFactorAuth", POST, retry);
+        twoFactorStatus = Endpoint.idempotent("twoFactorStatus", POST, afterTwoFactor);
+        executeTwoFactorAuth = Endpoint.nonIdempotent("executeTwoFactorAuth", POST, afterTwoFactor);
+        finalizeAuthorization = Endpoint.nonIdempotent("finalizeAuthorization", POST, afterTwoFactor);
+        verifyLogin = Endpoint.idempotent("verifyLogin", GET, afterTwoFactor).withHedging();
+        accounts = Endpoint.idempotent("accounts", GET, afterTwoFactor).withHedging();
+        transactions = Endpoint.idempotent("transactions", GET, retry).withHedging();
+    }
+}
@@ -0,0 +1,106 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.kontomatik.bankScraper.services.JsonAdapter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+// the accounts payload is not here: AccountsDecoder streams it without going through the codec
+@Configuration
+class MbankJsonAdapters {
+
+    @Bean
+    JsonAdapter<LoginResponse> loginResponseAdapter() {
+        return JsonAdapter.of(LoginResponse.class, MbankJsonAdapters::readLoginResponse);
+    }
+
+    @Bean
+    JsonAdapter<CsrfResponse> csrfResponseAdapter() {
+        return JsonAdapter.stringField(CsrfResponse.class, "antiForgeryToken", CsrfResponse::new);
+    }
+
+    @Bean
+    JsonAdapter<ScaResponse> scaResponseAdapter() {
+        return JsonAdapter.stringField(ScaResponse.class, "ScaAuthorizationId", ScaResponse::new);
+    }
+
+    @Bean
+    JsonAdapter<InitTwoFactorResponse> initTwoFactorResponseAdapter() {
+        return JsonAdapter.stringField(InitTwoFactorResponse.class, "TranId", InitTwoFactorResponse::new);
+    }
+
+    @Bean
+    JsonAdapter<AuthStatusResponse> authStatusResponseAdapter() {
+        return JsonAdapter.stringField(AuthStatusResponse.class, "Status", AuthStatusResponse::new);
+    }
+
+    @Bean
+    JsonAdapter<TransactionEntry> transactionEntryAdapter() {
+        return JsonAdapter.of(TransactionEntry.class, MbankJsonAdapters::readTransactionEntry);
+    }
+
+    private static LoginResponse readLoginResponse(JsonReader reader) throws IOException {
+        boolean successful = false;
+        String errorMessageTitle = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "successful" -> successful = JsonAdapter.readBoolean(reader);
+                case "errorMessageTitle" -> errorMessageTitle = JsonAdapter.readString(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new LoginResponse(successful, errorMessageTitle);
+    }
+
+    private static TransactionEntry readTransactionEntry(JsonReader reader) throws IOException {
+        String id = null;
+        LocalDate bookingDate = null;
+        BigDecimal amount = null;
+        String currency = null;
+        String description = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = JsonAdapter.readString(reader);
+                case "bookingDate" -> bookingDate = readDate(JsonAdapter.readString(reader));
+                case "amount" -> amount = readDecimal(JsonAdapter.readString(reader));
+                case "currency" -> currency = JsonAdapter.readString(reader);
+                case "description" -> description = JsonAdapter.readString(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TransactionEntry(id, bookingDate, amount, currency, description);
+    }
+
+    // dates come either as 2024-06-01 or with a midnight time part
+    private static LocalDate readDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException("Invalid date " + value);
+        }
+    }
+
+    private static BigDecimal readDecimal(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new JsonParseException("Invalid amount " + value);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.InvalidCredentials;
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import com.kontomatik.bankScraper.tracing.Scope;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.SpanKind;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Component
+class MbankMetrics {
+    static final String SUCCESS = "success";
+
+    private final MeterRegistry registry;
+    private final Tracer tracer;
+
+    MbankMetrics(MeterRegistry registry, Tracer tracer) {
+        this.registry = registry;
+        this.tracer = tracer;
+    }
+
+    <T> T timeAuthenticationStep(String step, AuthenticationStep<T> body)
+            throws IOException, InterruptedException, InvalidCredentials, ResponseHandlingException {
+        return time("mbank.auth.step", step, body);
+    }
+
+    void timeAuthenticationStep(String step, VoidAuthenticationStep body)
+            throws IOException, InterruptedException, InvalidCredentials, ResponseHandlingException {
+        time("mbank.auth.step", step, body.asStep());
+    }
+
+    void timeTwoFactorWait(VoidAuthenticationStep body)
+            throws IOException, InterruptedException, InvalidCredentials, ResponseHandlingException {
+        time("mbank.auth.twofactor.wait", "waitForUserAuthentication", body.asStep());
+    }
+
+    void countLogin(String outcome) {
+        Counter.builder("mbank.auth.logins")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    void recordScrape(Timer.Sample sample, String outcome, int accounts) {
+        sample.stop(Timer.builder("mbank.scrape")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+        DistributionSummary.builder("mbank.scrape.accounts")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(accounts);
+    }
+
+    void recordTransactions(Timer.Sample sample, String outcome, int transactions) {
+        sample.stop(Timer.builder("mbank.transactions")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+        DistributionSummary.builder("mbank.transactions.count")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(transactions);
+    }
+
+    static String outcomeOf(Exception e) {
+        return e.getClass().getSimpleName();
+    }
+
+    // every step is also a span, and the requests it sends become its children
+    private <T> T time(String name, String step, AuthenticationStep<T> body)
+            throws IOException, InterruptedException, InvalidCredentials, ResponseHandlingException {
+        Timer.Sample sample = Timer.start(registry);
+        Span span = tracer.startSpan("mbank.auth." + step, SpanKind.INTERNAL);
+        String outcome = SUCCESS;
+        try (Scope ignored = tracer.activate(span)) {
+            return body.run();
+        } catch (Exception e) {
+            outcome = outcomeOf(e);
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.end();
+            sample.stop(Timer.builder(name)
+                    .tag("step", step)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    @FunctionalInterface
+    interface AuthenticationStep<T> {
+        T run() throws IOException, InterruptedException, InvalidCredentials, ResponseHandlingException;
+    }
+
+    @FunctionalInterface
+    interface VoidAuthenticationStep {
+        void run() throws IOException, InterruptedException, InvalidCredentials, ResponseHandlingException;
+
+        private AuthenticationStep<Void> asStep() {
+            return () -> {
+                run();
+                return null;
+            };
+        }
+    }
+}
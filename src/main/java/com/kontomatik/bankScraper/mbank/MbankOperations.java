@@ -1,27 +1,194 @@
 package com.kontomatik.bankScraper.mbank;
 
+import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.exceptions.SessionExpiredException;
 import com.kontomatik.bankScraper.models.Account;
 import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.Transaction;
+import com.kontomatik.bankScraper.models.TransactionCursor;
 import com.kontomatik.bankScraper.services.BankOperationsService;
+import com.kontomatik.bankScraper.services.ScrapeListener;
+import com.kontomatik.bankScraper.tracing.Scope;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.SpanKind;
+import com.kontomatik.bankScraper.tracing.Tracer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class MbankOperations implements BankOperationsService {
     final MbankAuthentication authentication;
     final MbankScraper mbankScraper;
+    final SessionCache sessionCache;
+    final MbankTransactionScraper transactionScraper;
+    final Tracer tracer;
+
+    @Value("${mbank.base.url}")
+    private String baseUrl;
 
     @Autowired
-    MbankOperations(MbankAuthentication authentication, MbankScraper mbankScraper) {
+    MbankOperations(MbankAuthentication authentication,
+                    MbankScraper mbankScraper,
+                    SessionCache sessionCache,
+                    MbankTransactionScraper transactionScraper,
+                    Tracer tracer) {
         this.authentication = authentication;
         this.mbankScraper = mbankScraper;
+        this.sessionCache = sessionCache;
+        this.transactionScraper = transactionScraper;
+        this.tracer = tracer;
     }
 
     @Override
     public List<Account> fetchAccountData(Credentials credentials) {
+        return fetchAccountData(credentials, ScrapeListener.NONE);
+    }
+
+    @Override
+    public List<Account> fetchAccountData(Credentials credentials, ScrapeListener listener) {
+        return inSession("mbank.session.accounts", credentials, () -> scrapeAccounts(credentials, listener));
+    }
+
+    @Override
+    public void streamAccountData(Credentials credentials, ScrapeListener listener, Consumer<Account> sink) {
+        inSession("mbank.session.accounts", credentials, () -> streamAccounts(credentials, listener, sink));
+    }
+
+    // streams the account's history newer than since (null for all of it) and returns the cursor to pass next time
+    public TransactionCursor fetchTransactions(Credentials credentials,
+                                               String accountNumber,
+                                               TransactionCursor since,
+                                               Consumer<Transaction> sink) {
+        return inSession("mbank.session.transactions", credentials, () -> scrapeTransactions(credentials, accountNumber, since, sink));
+    }
+
+    @Override
+    public String bankId() {
+        return "mbank";
+    }
+
+    @Override
+    public String bankHost() {
+        return URI.create(baseUrl).getHost();
+    }
+
+    // one span per session, so the login steps and every request they send share a trace
+    private <T> T inSession(String name, Credentials credentials, Supplier<T> session) {
+        Span span = tracer.startSpan(name, SpanKind.INTERNAL)
+                .setAttribute("bank.id", bankId())
+                .setAttribute("enduser.pseudo.id", Tracer.pseudonymize(credentials.username()))
+                .setAttribute("session.cached", false);
+        try (Scope ignored = tracer.activate(span)) {
+            return session.get();
+        } catch (RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private List<Account> scrapeAccounts(Credentials credentials, ScrapeListener listener) {
+        Optional<List<Account>> fromCachedSession = scrapeWithCachedSession(credentials, listener);
+        if (fromCachedSession.isPresent()) {
+            return fromCachedSession.get();
+        }
+        Cookies authenticatedCookies = authentication.authenticate(credentials, listener);
+        listener.onScrapeStarted();
+        List<Account> accounts = mbankScraper.scrape(authenticatedCookies);
+        sessionCache.put(credentials, authenticatedCookies);
+        return accounts;
+    }
+
+    private Void streamAccounts(Credentials credentials, ScrapeListener listener, Consumer<Account> sink) {
+        Optional<Cookies> cachedCookies = sessionCache.get(credentials);
+        if (cachedCookies.isPresent()) {
+            listener.onScrapeStarted();
+            AtomicBoolean emitted = new AtomicBoolean();
+            try {
+                mbankScraper.scrape(cachedCookies.get(), account -> {
+                    emitted.set(true);
+                    sink.accept(account);
+                });
+                tracer.current().setAttribute("session.cached", true);
+                return null;
+            } catch (SessionExpiredException e) {
+                // a cancelled caller gets its failure, and the session it interrupted is still good
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                sessionCache.invalidate(credentials);
+                // the sink already has some of the accounts, so starting over would hand it duplicates
+                if (emitted.get()) {
+                    throw e;
+                }
+            }
+        }
+        Cookies authenticatedCookies = authentication.authenticate(credentials, listener);
+        listener.onScrapeStarted();
+        mbankScraper.scrape(authenticatedCookies, sink);
+        sessionCache.put(credentials, authenticatedCookies);
+        return null;
+    }
+
+    private TransactionCursor scrapeTransactions(Credentials credentials,
+                                                 String accountNumber,
+                                                 TransactionCursor since,
+                                                 Consumer<Transaction> sink) {
+        Optional<Cookies> cachedCookies = sessionCache.get(credentials);
+        if (cachedCookies.isPresent()) {
+            AtomicBoolean emitted = new AtomicBoolean();
+            try {
+                TransactionCursor next = transactionScraper.scrape(cachedCookies.get(), accountNumber, since, transaction -> {
+                    emitted.set(true);
+                    sink.accept(transaction);
+                });
+                tracer.current().setAttribute("session.cached", true);
+                return next;
+            } catch (SessionExpiredException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                sessionCache.invalidate(credentials);
+                // the sink already has part of the history, so starting over would hand it duplicates
+                if (emitted.get()) {
+                    throw e;
+                }
+            }
+        }
         Cookies authenticatedCookies = authentication.authenticate(credentials);
-        return mbankScraper.scrape(authenticatedCookies);
+        TransactionCursor next = transactionScraper.scrape(authenticatedCookies, accountNumber, since, sink);
+        sessionCache.put(credentials, authenticatedCookies);
+        return next;
+    }
+
+    // only an expired session is worth a new login and 2FA prompt; any other failure, such as the bank being down
+    // or our own breaker refusing the call, is passed on and the cached session kept
+    private Optional<List<Account>> scrapeWithCachedSession(Credentials credentials, ScrapeListener listener) {
+        Optional<Cookies> cachedCookies = sessionCache.get(credentials);
+        if (cachedCookies.isEmpty()) {
+            return Optional.empty();
+        }
+        listener.onScrapeStarted();
+        try {
+            List<Account> accounts = mbankScraper.scrape(cachedCookies.get());
+            tracer.current().setAttribute("session.cached", true);
+            return Optional.of(accounts);
+        } catch (SessionExpiredException e) {
+            // a cancelled caller gets its failure, and the session it interrupted is still good
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            sessionCache.invalidate(credentials);
+            return Optional.empty();
+        }
     }
 }
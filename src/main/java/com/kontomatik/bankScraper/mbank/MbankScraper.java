@@ -2,24 +2,31 @@ package com.kontomatik.bankScraper.mbank;
 
 import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
 import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.exceptions.SessionExpiredException;
 import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.AccountView;
 import com.kontomatik.bankScraper.services.JsoupClient;
-import com.kontomatik.bankScraper.services.ResponseHandler;
-import org.jsoup.Connection;
+import com.kontomatik.bankScraper.tracing.Scope;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.SpanKind;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 
 @Component
 class MbankScraper {
-    private final ResponseHandler responseHandler;
     private final JsoupClient jsoupClient;
+    private final MbankMetrics metrics;
+    private final MbankEndpoints endpoints;
+    private final Tracer tracer;
 
     @Value("${mbank.accounts.url}")
     private String mbankScraperUrl;
@@ -27,41 +34,73 @@ class MbankScraper {
     @Value("${mbank.base.url}")
     private String baseUrl;
 
-    MbankScraper(ResponseHandler responseHandler, JsoupClient jsoupClient) {
-        this.responseHandler = responseHandler;
+    MbankScraper(JsoupClient jsoupClient, MbankMetrics metrics, MbankEndpoints endpoints, Tracer tracer) {
         this.jsoupClient = jsoupClient;
+        this.metrics = metrics;
+        this.endpoints = endpoints;
+        this.tracer = tracer;
     }
 
     List<Account> scrape(Cookies cookies) {
-        try {
-            RequestParams requestParams = new RequestParams.Builder()
-                    .cookies(cookies.getCookies())
-                    .ignoreContentType(true)
-                    .build();
-            Connection.Response response = jsoupClient.sendRequest(
-                    baseUrl + mbankScraperUrl,
-                    Connection.Method.GET,
-                    requestParams);
-            AccountGroups groups = responseHandler.handleResponse(response.body(), AccountGroups.class);
-            validateScrapedGroups(groups);
-            return flattenAccountGroups(groups);
+        List<Account> accounts = new ArrayList<>();
+        scrape(cookies, accounts::add);
+        return accounts;
+    }
 
-        } catch (ScrapingException | IOException | ResponseHandlingException e) {
-            throw new ScrapingException("An error has occurred during scraping: " + e.getMessage());
+    void scrape(Cookies cookies, Consumer<Account> accountConsumer) {
+        scrapeViews(cookies, view -> accountConsumer.accept(view.toAccount()));
+    }
+
+    // the view is reused for every account, so consumers must copy out what they keep
+    void scrapeViews(Cookies cookies, Consumer<AccountView> accountConsumer) {
+        Timer.Sample sample = metrics.startTimer();
+        Span span = tracer.startSpan("mbank.scrape.accounts", SpanKind.INTERNAL);
+        AtomicInteger scrapedAccounts = new AtomicInteger();
+        String outcome = MbankMetrics.SUCCESS;
+        try (Scope ignored = tracer.activate(span)) {
+            scrapeAccounts(cookies, account -> {
+                scrapedAccounts.incrementAndGet();
+                accountConsumer.accept(account);
+            });
+        } catch (RuntimeException e) {
+            outcome = MbankMetrics.outcomeOf(e);
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.setAttribute("accounts.count", scrapedAccounts.get()).end();
+            metrics.recordScrape(sample, outcome, scrapedAccounts.get());
         }
     }
 
-    private List<Account> flattenAccountGroups(AccountGroups accountGroups) {
-        return Optional.ofNullable(accountGroups)
-                .map(AccountGroups::accountGroups)
-                .orElse(Collections.emptyList())
-                .stream()
-                .flatMap(group -> group.accounts().stream())
-                .collect(Collectors.toList());
+    private void scrapeAccounts(Cookies cookies, Consumer<AccountView> accountConsumer) {
+        String url = baseUrl + mbankScraperUrl;
+        RequestParams requestParams = new RequestParams.Builder()
+                .cookies(cookies.cookiesFor(url))
+                .ignoreContentType(true)
+                .build();
+        // a retried read starts over from the first account, so the ones already handed out are skipped
+        AtomicInteger delivered = new AtomicInteger();
+        try {
+            boolean groupsPresent = jsoupClient.exchange(endpoints.accounts, url, requestParams, response -> {
+                SessionExpiry.check(response);
+                AtomicInteger position = new AtomicInteger();
+                return AccountsDecoder.decode(response.bodyReader(), account -> {
+                    if (position.incrementAndGet() > delivered.get()) {
+                        delivered.incrementAndGet();
+                        accountConsumer.accept(account);
+                    }
+                });
+            });
+            validateScrapedGroups(groupsPresent);
+        } catch (SessionExpiredException e) {
+            throw e;
+        } catch (ScrapingException | IOException | ResponseHandlingException e) {
+            throw new ScrapingException("An error has occurred during scraping: " + e.getMessage());
+        }
     }
 
-    private void validateScrapedGroups(AccountGroups groups) {
-        if (groups == null) {
+    private void validateScrapedGroups(boolean groupsPresent) {
+        if (!groupsPresent) {
             throw new ScrapingException("AccountGroups is null");
         }
     }
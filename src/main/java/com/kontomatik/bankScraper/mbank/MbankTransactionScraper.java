@@ -0,0 +1,183 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.exceptions.SessionExpiredException;
+import com.kontomatik.bankScraper.models.Transaction;
+import com.kontomatik.bankScraper.models.TransactionCursor;
+import com.kontomatik.bankScraper.services.JsoupClient;
+import com.kontomatik.bankScraper.services.ResponseHandler;
+import com.kontomatik.bankScraper.tracing.Scope;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.SpanKind;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+@Component
+class MbankTransactionScraper {
+    private final JsoupClient jsoupClient;
+    private final ResponseHandler responseHandler;
+    private final MbankMetrics metrics;
+    private final MbankEndpoints endpoints;
+    private final int pageSize;
+    private final int prefetchWindow;
+    private final Tracer tracer;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${mbank.transactions.url}")
+    private String transactionsUrl;
+
+    @Value("${mbank.base.url}")
+    private String baseUrl;
+
+    MbankTransactionScraper(JsoupClient jsoupClient,
+                            ResponseHandler responseHandler,
+                            MbankMetrics metrics,
+                            MbankEndpoints endpoints,
+                            @Value("${mbank.transactions.pageSize:100}") int pageSize,
+                            @Value("${mbank.transactions.prefetchWindow:4}") int prefetchWindow,
+                            Tracer tracer) {
+        this.jsoupClient = jsoupClient;
+        this.responseHandler = responseHandler;
+        this.metrics = metrics;
+        this.endpoints = endpoints;
+        this.pageSize = pageSize;
+        this.prefetchWindow = prefetchWindow;
+        this.tracer = tracer;
+    }
+
+    // history comes newest first; since is null for the full history. Returns the cursor for the next call,
+    // which is since itself when nothing new was booked
+    TransactionCursor scrape(Cookies cookies, String accountNumber, TransactionCursor since, Consumer<Transaction> sink) {
+        Timer.Sample sample = metrics.startTimer();
+        Span span = tracer.startSpan("mbank.scrape.transactions", SpanKind.INTERNAL)
+                .setAttribute("transactions.incremental", since != null);
+        int[] emitted = {0};
+        String outcome = MbankMetrics.SUCCESS;
+        try (Scope ignored = tracer.activate(span)) {
+            return scrapePages(cookies, accountNumber, since, transaction -> {
+                emitted[0]++;
+                sink.accept(transaction);
+            });
+        } catch (RuntimeException e) {
+            outcome = MbankMetrics.outcomeOf(e);
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.setAttribute("transactions.count", emitted[0]).end();
+            metrics.recordTransactions(sample, outcome, emitted[0]);
+        }
+    }
+
+    // pages are requested ahead of the one being emitted, but emitted strictly in order so the sink sees a single
+    // newest-first stream. The window starts at one page and doubles up to prefetchWindow while pages keep coming
+    // back full, so an incremental fetch that fits in one page costs one request
+    private TransactionCursor scrapePages(Cookies cookies, String accountNumber, TransactionCursor since, Consumer<Transaction> sink) {
+        Deque<Future<List<TransactionEntry>>> window = new ArrayDeque<>();
+        TransactionCursor newest = null;
+        int nextPage = 0;
+        int ahead = 1;
+        try {
+            while (true) {
+                while (window.size() < ahead) {
+                    int page = nextPage++;
+                    window.addLast(executor.submit(tracer.wrap(() -> fetchPage(cookies, accountNumber, since, page))));
+                }
+                List<TransactionEntry> entries = await(window.removeFirst());
+                for (TransactionEntry entry : entries) {
+                    if (reached(since, entry)) {
+                        return newest == null ? since : newest;
+                    }
+                    Transaction transaction = entry.toTransaction(accountNumber);
+                    if (newest == null) {
+                        newest = TransactionCursor.of(transaction);
+                    }
+                    sink.accept(transaction);
+                }
+                if (entries.size() < pageSize) {
+                    return newest == null ? since : newest;
+                }
+                ahead = Math.min(ahead * 2, prefetchWindow);
+            }
+        } finally {
+            window.forEach(page -> page.cancel(true));
+        }
+    }
+
+    private List<TransactionEntry> fetchPage(Cookies cookies, String accountNumber, TransactionCursor since, int page) {
+        String url = baseUrl + transactionsUrl;
+        Map<String, String> query = new HashMap<>();
+        query.put("accountNumber", accountNumber);
+        query.put("page", String.valueOf(page));
+        query.put("pageSize", String.valueOf(pageSize));
+        if (since != null && since.bookingDate() != null) {
+            query.put("dateFrom", since.bookingDate().toString());
+        }
+        RequestParams requestParams = new RequestParams.Builder()
+                .cookies(cookies.cookiesFor(url))
+                .data(query)
+                .ignoreContentType(true)
+                .build();
+        List<TransactionEntry> entries = new ArrayList<>(pageSize);
+        try {
+            boolean present = jsoupClient.exchange(endpoints.transactions, url, requestParams, response -> {
+                SessionExpiry.check(response);
+                // a retried page is read again from its start
+                entries.clear();
+                return responseHandler.streamElements(response.bodyReader(), TransactionEntry.class, entries::add, "transactions");
+            });
+            if (!present) {
+                throw new ScrapingException("Transactions are null");
+            }
+        } catch (SessionExpiredException e) {
+            throw e;
+        } catch (ScrapingException | IOException | ResponseHandlingException e) {
+            throw new ScrapingException("An error has occurred during scraping transactions: " + e.getMessage());
+        }
+        return entries;
+    }
+
+    // the cursor's own transaction, or anything booked before it if that one has since disappeared from the history
+    private static boolean reached(TransactionCursor since, TransactionEntry entry) {
+        if (since == null) {
+            return false;
+        }
+        return since.transactionId() != null && since.transactionId().equals(entry.id())
+                || entry.bookingDate() != null && since.bookingDate() != null && entry.bookingDate().isBefore(since.bookingDate());
+    }
+
+    private static List<TransactionEntry> await(Future<List<TransactionEntry>> page) {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ScrapingException("An error has occurred during scraping transactions: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScrapingException("Scraping transactions was interrupted");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.CredentialsKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+class SessionCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int COOKIE_OVERHEAD_BYTES = 64;
+
+    private final Map<CredentialsKey, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Duration ttl;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Clock clock;
+    private long usedBytes;
+
+    @Autowired
+    SessionCache(@Value("${mbank.session.ttl.seconds:600}") long ttlSeconds,
+                 @Value("${mbank.session.maxEntries:10000}") int maxEntries,
+                 @Value("${mbank.session.maxBytes:67108864}") long maxBytes) {
+        this(Duration.ofSeconds(ttlSeconds), maxEntries, maxBytes, Clock.systemUTC());
+    }
+
+    SessionCache(Duration ttl, int maxEntries, long maxBytes, Clock clock) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+    }
+
+    synchronized Optional<Cookies> get(Credentials credentials) {
+        CredentialsKey key = CredentialsKey.of(credentials);
+        Session session = sessions.get(key);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (session.isExpired(clock.instant())) {
+            remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(session.cookies());
+    }
+
+    synchronized void put(Credentials credentials, Cookies cookies) {
+        CredentialsKey key = CredentialsKey.of(credentials);
+        remove(key);
+        Session session = new Session(cookies, clock.instant().plus(ttl), estimateSize(cookies));
+        if (session.sizeBytes() > maxBytes) {
+            return;
+        }
+        sessions.put(key, session);
+        usedBytes += session.sizeBytes();
+        evictOverBudget();
+    }
+
+    synchronized void invalidate(Credentials credentials) {
+        remove(CredentialsKey.of(credentials));
+    }
+
+    synchronized int size() {
+        return sessions.size();
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    private void remove(CredentialsKey key) {
+        Session removed = sessions.remove(key);
+        if (removed != null) {
+            usedBytes -= removed.sizeBytes();
+        }
+    }
+
+    private void evictOverBudget() {
+        Iterator<Session> eldestFirst = sessions.values().iterator();
+        while (eldestFirst.hasNext() && (sessions.size() > maxEntries || usedBytes > maxBytes)) {
+            usedBytes -= eldestFirst.next().sizeBytes();
+            eldestFirst.remove();
+        }
+    }
+
+    private static long estimateSize(Cookies cookies) {
+        long size = ENTRY_OVERHEAD_BYTES;
+        for (Map.Entry<String, String> cookie : cookies.getCookies().entrySet()) {
+            size += COOKIE_OVERHEAD_BYTES + 2L * (cookie.getKey().length() + cookie.getValue().length());
+        }
+        return size;
+    }
+
+    private record Session(Cookies cookies, Instant expiresAt, long sizeBytes) {
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.SessionExpiredException;
+import com.kontomatik.bankScraper.services.TransportResponse;
+
+import java.util.Locale;
+import java.util.Map;
+
+// mBank answers a request with an expired session by refusing it or by redirecting it to the login page; the
+// redirect is followed by the transport, so it shows up as an HTML page where JSON was expected. An HTML error page
+// (a 5xx during an outage) says nothing about the session
+final class SessionExpiry {
+    private SessionExpiry() {
+    }
+
+    static void check(TransportResponse response) {
+        int status = response.statusCode();
+        boolean loginPage = status >= 200 && status < 300 && isHtml(response.headers());
+        if (status == 401 || status == 403 || status >= 300 && status < 400 || loginPage) {
+            throw new SessionExpiredException("The session has expired (HTTP " + status + ")");
+        }
+    }
+
+    private static boolean isHtml(Map<String, String> headers) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase("Content-Type")) {
+                return header.getValue().toLowerCase(Locale.ROOT).startsWith("text/html");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.models.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+record TransactionEntry(String id, LocalDate bookingDate, BigDecimal amount, String currency, String description) {
+
+    Transaction toTransaction(String accountNumber) {
+        return new Transaction(id, accountNumber, bookingDate, amount, currency, description);
+    }
+}
@@ -0,0 +1,145 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.AuthenticationException;
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+@Component
+class TwoFactorStatusPoller {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("2fa-status-poller").daemon().factory());
+    private final ExecutorService pollExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double backoffMultiplier;
+    private final long timeoutSeconds;
+
+    TwoFactorStatusPoller(@Value("${mbank.twoFactorAuth.poll.initialDelay.millis:1000}") long initialDelayMillis,
+                          @Value("${mbank.twoFactorAuth.poll.maxDelay.millis:5000}") long maxDelayMillis,
+                          @Value("${mbank.twoFactorAuth.poll.multiplier:1.5}") double backoffMultiplier,
+                          @Value("${mbank.twoFactorAuth.timeout.seconds:30}") long timeoutSeconds) {
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.backoffMultiplier = backoffMultiplier;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    CompletableFuture<Void> awaitAuthorization(StatusCheck statusCheck) {
+        PendingAuthorization pending = new PendingAuthorization(
+                statusCheck,
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds));
+        pollExecutor.execute(() -> poll(pending));
+        return pending.result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        pollExecutor.shutdownNow();
+    }
+
+    private void poll(PendingAuthorization pending) {
+        if (!pending.startPolling()) {
+            return;
+        }
+        try {
+            String status = pending.statusCheck.fetchStatus();
+            validateStatusFetch(status);
+            validateStatusNotCancelled(status);
+            if ("Authorized".equals(status)) {
+                pending.result.complete(null);
+                return;
+            }
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(pending.deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                throw new AuthenticationException("Timeout (" + timeoutSeconds + "s) reached for 2FA verification");
+            }
+            pending.scheduleNext(Math.min(pending.nextDelay(), remainingMillis));
+        } catch (Exception e) {
+            pending.result.completeExceptionally(e);
+        } finally {
+            pending.stopPolling();
+        }
+    }
+
+    private void validateStatusNotCancelled(String status) {
+        if ("Canceled".equals(status)) {
+            throw new AuthenticationException("2FA cancelled by user");
+        }
+    }
+
+    private void validateStatusFetch(String status) {
+        if (status == null || status.isEmpty()) {
+            throw new AuthenticationException("Failed to fetch 2FA status");
+        }
+    }
+
+    @FunctionalInterface
+    interface StatusCheck {
+        String fetchStatus() throws IOException, ResponseHandlingException;
+    }
+
+    private class PendingAuthorization {
+        private final StatusCheck statusCheck;
+        private final long deadline;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private long delayMillis = initialDelayMillis;
+        private Thread polling;
+        private ScheduledFuture<?> nextPoll;
+
+        // cancelling the result interrupts a status check in flight and drops the one scheduled next
+        private PendingAuthorization(StatusCheck statusCheck, long deadline) {
+            this.statusCheck = statusCheck;
+            this.deadline = deadline;
+            result.whenComplete((ignored, failure) -> {
+                if (result.isCancelled()) {
+                    stop();
+                }
+            });
+        }
+
+        private synchronized boolean startPolling() {
+            if (result.isDone()) {
+                return false;
+            }
+            polling = Thread.currentThread();
+            return true;
+        }
+
+        private synchronized void stopPolling() {
+            polling = null;
+        }
+
+        private synchronized void scheduleNext(long delay) {
+            if (!result.isDone()) {
+                nextPoll = scheduler.schedule(() -> pollExecutor.execute(() -> poll(this)), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void stop() {
+            if (polling != null) {
+                polling.interrupt();
+            }
+            if (nextPoll != null) {
+                nextPoll.cancel(false);
+            }
+        }
+
+        private long nextDelay() {
+            long delay = delayMillis;
+            delayMillis = Math.min(maxDelayMillis, (long) (delayMillis * backoffMultiplier));
+            return delay;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.kontomatik.bankScraper.models;
+
+import java.math.BigDecimal;
+
+public record AccountChange(Type type, String accountNumber, String name, BigDecimal previousBalance, BigDecimal currentBalance) {
+
+    public enum Type { ADDED, REMOVED, CHANGED }
+
+    public static AccountChange added(Account account) {
+        return new AccountChange(Type.ADDED, account.accountNumber(), account.name(), null, account.balance());
+    }
+
+    public static AccountChange removed(Account account) {
+        return new AccountChange(Type.REMOVED, account.accountNumber(), account.name(), account.balance(), null);
+    }
+
+    public static AccountChange changed(Account previous, Account current) {
+        return new AccountChange(Type.CHANGED, current.accountNumber(), current.name(), previous.balance(), current.balance());
+    }
+}
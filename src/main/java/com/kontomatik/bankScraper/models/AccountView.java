@@ -0,0 +1,61 @@
+package com.kontomatik.bankScraper.models;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+// a view over one decoded account; bulk decoders may reuse the same instance for every account, so copy what you keep
+public interface AccountView {
+    String accountNumber();
+
+    String name();
+
+    String currency();
+
+    boolean hasBalance();
+
+    long unscaledBalance();
+
+    int balanceScale();
+
+    default BigDecimal balance() {
+        return hasBalance() ? BigDecimal.valueOf(unscaledBalance(), balanceScale()) : null;
+    }
+
+    default long minorUnits(int scale) {
+        long unscaled = unscaledBalance();
+        int shift = scale - balanceScale();
+        if (shift >= 0) {
+            for (int i = 0; i < shift; i++) {
+                unscaled = Math.multiplyExact(unscaled, 10L);
+            }
+            return unscaled;
+        }
+        for (int i = 0; i < -shift; i++) {
+            if (unscaled % 10 != 0) {
+                throw new ArithmeticException("Balance of account " + accountNumber() + " does not fit " + scale + " decimal places");
+            }
+            unscaled /= 10;
+        }
+        return unscaled;
+    }
+
+    default long minorUnits() {
+        int fractionDigits = fractionDigits(currency());
+        return minorUnits(fractionDigits < 0 ? balanceScale() : fractionDigits);
+    }
+
+    default Account toAccount() {
+        return new Account(accountNumber(), balance(), name());
+    }
+
+    private static int fractionDigits(String currency) {
+        if (currency == null) {
+            return -1;
+        }
+        try {
+            return Currency.getInstance(currency).getDefaultFractionDigits();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
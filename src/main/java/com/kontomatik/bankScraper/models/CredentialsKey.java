@@ -0,0 +1,32 @@
+package com.kontomatik.bankScraper.models;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+// identifies a customer's login in long-lived caches without keeping the plaintext password there. The salt is drawn
+// per process, so the hashes are useless outside it and cannot be matched against precomputed tables
+public record CredentialsKey(String username, String passwordHash) {
+    private static final byte[] SALT = salt();
+
+    public static CredentialsKey of(Credentials credentials) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SALT);
+            digest.update(credentials.username().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            byte[] hash = digest.digest(credentials.password().getBytes(StandardCharsets.UTF_8));
+            return new CredentialsKey(credentials.username(), HexFormat.of().formatHex(hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] salt() {
+        byte[] salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.kontomatik.bankScraper.models;
+
+import java.util.List;
+import java.util.Map;
+
+public record MultiBankResult(List<Account> accounts, Map<String, Exception> failures) {
+
+    public boolean succeeded() {
+        return failures.isEmpty();
+    }
+}
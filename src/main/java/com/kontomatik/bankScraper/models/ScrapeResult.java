@@ -0,0 +1,18 @@
+package com.kontomatik.bankScraper.models;
+
+import java.util.List;
+
+public record ScrapeResult(String username, List<Account> accounts, Exception failure) {
+
+    public static ScrapeResult success(String username, List<Account> accounts) {
+        return new ScrapeResult(username, accounts, null);
+    }
+
+    public static ScrapeResult failure(String username, Exception failure) {
+        return new ScrapeResult(username, List.of(), failure);
+    }
+
+    public boolean succeeded() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.kontomatik.bankScraper.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record Transaction(String id, String accountNumber, LocalDate bookingDate, BigDecimal amount, String currency, String description) {
+}
@@ -0,0 +1,11 @@
+package com.kontomatik.bankScraper.models;
+
+import java.time.LocalDate;
+
+// the newest transaction already delivered for an account; the next fetch stops when it reaches it
+public record TransactionCursor(String transactionId, LocalDate bookingDate) {
+
+    public static TransactionCursor of(Transaction transaction) {
+        return new TransactionCursor(transaction.id(), transaction.bookingDate());
+    }
+}
@@ -0,0 +1,14 @@
+package com.kontomatik.bankScraper.server;
+
+public enum JobStatus {
+    QUEUED,
+    AUTHENTICATING,
+    AWAITING_TWO_FACTOR,
+    SCRAPING,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,57 @@
+package com.kontomatik.bankScraper.server;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+final class ScrapeJob {
+    private final String id;
+    private final String username;
+    private final String traceId;
+    private ScrapeJobState state;
+    private CompletableFuture<ScrapeJobState> nextChange = new CompletableFuture<>();
+
+    ScrapeJob(String id, String username, String traceId, Instant createdAt) {
+        this.id = id;
+        this.username = username;
+        this.traceId = traceId;
+        this.state = new ScrapeJobState(id, username, traceId, JobStatus.QUEUED, null, null, createdAt);
+    }
+
+    String id() {
+        return id;
+    }
+
+    synchronized ScrapeJobState state() {
+        return state;
+    }
+
+    void moveTo(JobStatus status, Instant at) {
+        update(new ScrapeJobState(id, username, traceId, status, null, null, at));
+    }
+
+    void succeed(List<Account> accounts, Instant at) {
+        update(new ScrapeJobState(id, username, traceId, JobStatus.SUCCEEDED, List.copyOf(accounts), null, at));
+    }
+
+    void fail(String error, Instant at) {
+        update(new ScrapeJobState(id, username, traceId, JobStatus.FAILED, null, error, at));
+    }
+
+    // completes as soon as the job is in any status other than the one the caller last saw
+    synchronized CompletableFuture<ScrapeJobState> changeFrom(JobStatus seen) {
+        return state.status() != seen ? CompletableFuture.completedFuture(state) : nextChange.copy();
+    }
+
+    private void update(ScrapeJobState next) {
+        CompletableFuture<ScrapeJobState> waiting;
+        synchronized (this) {
+            state = next;
+            waiting = nextChange;
+            nextChange = new CompletableFuture<>();
+        }
+        waiting.complete(next);
+    }
+}
@@ -0,0 +1,142 @@
+package com.kontomatik.bankScraper.server;
+
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.services.BankOperationsService;
+import com.kontomatik.bankScraper.services.BankProviderRegistry;
+import com.kontomatik.bankScraper.services.ScrapeListener;
+import com.kontomatik.bankScraper.store.AccountSnapshotStore;
+import com.kontomatik.bankScraper.tracing.Scope;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.SpanKind;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class ScrapeJobService {
+    private final BankOperationsService bank;
+    private final AccountSnapshotStore snapshotStore;
+    private final Semaphore permits;
+    private final Duration jobTtl;
+    private final Clock clock;
+    private final Tracer tracer;
+    private final Map<String, ScrapeJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public ScrapeJobService(BankProviderRegistry bankProviders,
+                            AccountSnapshotStore snapshotStore,
+                            Tracer tracer,
+                            @Value("${scraper.server.maxConcurrentJobs:16}") int maxConcurrentJobs,
+                            @Value("${scraper.server.jobTtl.seconds:900}") long jobTtlSeconds) {
+        this(bankProviders.defaultProvider(), snapshotStore, tracer, maxConcurrentJobs, Duration.ofSeconds(jobTtlSeconds), Clock.systemUTC());
+    }
+
+    ScrapeJobService(BankOperationsService bank, AccountSnapshotStore snapshotStore, Tracer tracer, int maxConcurrentJobs, Duration jobTtl, Clock clock) {
+        this.bank = bank;
+        this.snapshotStore = snapshotStore;
+        this.permits = new Semaphore(maxConcurrentJobs, true);
+        this.jobTtl = jobTtl;
+        this.clock = clock;
+        this.tracer = tracer;
+    }
+
+    public ScrapeJobState submit(Credentials credentials) {
+        evictExpired();
+        // the job's trace starts at submission, so time spent waiting for a permit shows up in it too
+        Span span = tracer.startTrace("scrape.job", SpanKind.SERVER)
+                .setAttribute("enduser.pseudo.id", Tracer.pseudonymize(credentials.username()));
+        ScrapeJob job = new ScrapeJob(UUID.randomUUID().toString(), credentials.username(), span.traceId(), clock.instant());
+        span.setAttribute("job.id", job.id());
+        jobs.put(job.id(), job);
+        executor.execute(() -> {
+            try (Scope ignored = tracer.activate(span)) {
+                run(job, credentials);
+            } finally {
+                span.setAttribute("job.status", job.state().status().name()).end();
+            }
+        });
+        return job.state();
+    }
+
+    public Optional<ScrapeJobState> find(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(ScrapeJob::state);
+    }
+
+    // long-poll: blocks only the calling (virtual) thread until the job leaves the status the client last saw
+    public Optional<ScrapeJobState> awaitChange(String id, JobStatus seen, Duration maxWait) throws InterruptedException {
+        ScrapeJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(job.changeFrom(seen).get(maxWait.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return Optional.of(job.state());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Job status future failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ScrapeJob job, Credentials credentials) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            job.fail("Server is shutting down", clock.instant());
+            return;
+        }
+        try {
+            job.moveTo(JobStatus.AUTHENTICATING, clock.instant());
+            List<Account> accounts = bank.fetchAccountData(credentials, new ScrapeListener() {
+                @Override
+                public void onTwoFactorAuthStarted() {
+                    job.moveTo(JobStatus.AWAITING_TWO_FACTOR, clock.instant());
+                }
+
+                @Override
+                public void onScrapeStarted() {
+                    job.moveTo(JobStatus.SCRAPING, clock.instant());
+                }
+            });
+            snapshotStore.append(credentials.username(), accounts);
+            job.succeed(accounts, clock.instant());
+        } catch (Throwable e) {
+            // whatever went wrong, the job has to reach a terminal state or its long-pollers spin until it expires
+            tracer.current().recordError(e);
+            job.fail(e.getMessage() == null ? e.toString() : e.getMessage(), clock.instant());
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictExpired() {
+        Instant cutoff = clock.instant().minus(jobTtl);
+        jobs.values().removeIf(job -> {
+            ScrapeJobState state = job.state();
+            return state.status().isFinished() && state.updatedAt().isBefore(cutoff);
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package com.kontomatik.bankScraper.server;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ScrapeJobState(String id, String username, String traceId, JobStatus status, List<Account> accounts, String error, Instant updatedAt) {
+}
@@ -0,0 +1,182 @@
+package com.kontomatik.bankScraper.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// POST /jobs                          {"username":..,"password":..} -> 202 with the job id
+// GET  /jobs/{id}[?after=S&wait=N]    current job state; with after, waits up to N seconds for it to leave status S
+@Component
+@ConditionalOnProperty(name = "scraper.mode", havingValue = "server")
+public class ScrapeServer {
+    private static final String JOBS_PATH = "/jobs";
+
+    private final ScrapeJobService jobs;
+    private final Gson gson;
+    private final String address;
+    private final int port;
+    private final Duration maxWait;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    public ScrapeServer(ScrapeJobService jobs,
+                        Gson gson,
+                        @Value("${scraper.server.address:127.0.0.1}") String address,
+                        @Value("${scraper.server.port:8080}") int port,
+                        @Value("${scraper.server.maxWait.seconds:30}") long maxWaitSeconds) {
+        this.jobs = jobs;
+        this.gson = gson;
+        this.address = address;
+        this.port = port;
+        this.maxWait = Duration.ofSeconds(maxWaitSeconds);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        // plain HTTP without authentication: loopback only unless an address is configured for a TLS-terminating proxy
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.setExecutor(executor);
+        server.createContext(JOBS_PATH, this::handle);
+        server.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals(JOBS_PATH) || path.equals(JOBS_PATH + "/")) {
+                if (method.equals("POST")) {
+                    submit(exchange);
+                } else {
+                    sendError(exchange, 405, "Use POST to submit a job");
+                }
+            } else if (method.equals("GET")) {
+                status(exchange, path.substring(JOBS_PATH.length() + 1));
+            } else {
+                sendError(exchange, 405, "Use GET to follow a job");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        JobRequest request;
+        try (Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = gson.fromJson(body, JobRequest.class);
+        } catch (JsonParseException e) {
+            sendError(exchange, 400, "Request body must be a JSON object with username and password");
+            return;
+        }
+        if (request == null || isBlank(request.username()) || isBlank(request.password())) {
+            sendError(exchange, 400, "Username or password cannot be empty.");
+            return;
+        }
+        ScrapeJobState state = jobs.submit(new Credentials(request.username(), request.password()));
+        exchange.getResponseHeaders().set("Location", JOBS_PATH + "/" + state.id());
+        send(exchange, 202, JobView.of(state));
+    }
+
+    private void status(HttpExchange exchange, String id) throws IOException, InterruptedException {
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        Optional<ScrapeJobState> state;
+        try {
+            state = query.containsKey("after")
+                    ? jobs.awaitChange(id, JobStatus.valueOf(query.get("after")), waitFor(query.get("wait")))
+                    : jobs.find(id);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, "Invalid after or wait parameter");
+            return;
+        }
+        if (state.isEmpty()) {
+            sendError(exchange, 404, "No job with id " + id);
+            return;
+        }
+        send(exchange, 200, JobView.of(state.get()));
+    }
+
+    private Duration waitFor(String seconds) {
+        if (seconds == null) {
+            return maxWait;
+        }
+        Duration requested = Duration.ofSeconds(Long.parseLong(seconds));
+        if (requested.isNegative()) {
+            throw new IllegalArgumentException("Negative wait");
+        }
+        return requested.compareTo(maxWait) > 0 ? maxWait : requested;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, Map.of("error", message));
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] json = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private record JobRequest(String username, String password) {
+    }
+
+    private record JobView(String id, String traceId, JobStatus status, List<Account> accounts, String error, String updatedAt) {
+        static JobView of(ScrapeJobState state) {
+            return new JobView(state.id(), state.traceId(), state.status(), state.accounts(), state.error(), state.updatedAt().toString());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.AccountChange;
+import com.kontomatik.bankScraper.models.Credentials;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+@Service
+public class AccountDeltaSync {
+    private final Map<BaselineKey, Map<String, Account>> baselines = new ConcurrentHashMap<>();
+    private final Map<BaselineKey, Lock> locks = new ConcurrentHashMap<>();
+
+    public List<AccountChange> sync(BankOperationsService bank, Credentials credentials) {
+        List<AccountChange> changes = new ArrayList<>();
+        sync(bank, credentials, changes::add);
+        return changes;
+    }
+
+    // changes are handed over as the accounts are decoded. The baseline only moves once the whole fetch succeeded,
+    // so after a failure halfway through, the next sync reports the same changes again. Syncs of the same customer
+    // take turns on that customer's lock, so neither loses the baseline the other wrote; a map compute would do the
+    // same but block every customer sharing the bin while this one waits on the 2FA prompt
+    public void sync(BankOperationsService bank, Credentials credentials, Consumer<AccountChange> changeConsumer) {
+        BaselineKey key = new BaselineKey(bank.bankId(), credentials.username());
+        Lock lock = lockFor(key);
+        lock.lock();
+        try {
+            Delta delta = new Delta(baselines.get(key), changeConsumer);
+            bank.streamAccountData(credentials, ScrapeListener.NONE, delta::accept);
+            baselines.put(key, delta.finish());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<AccountChange> diff(String bankId, String customer, List<Account> accounts) {
+        BaselineKey key = new BaselineKey(bankId, customer);
+        List<AccountChange> changes = new ArrayList<>();
+        Lock lock = lockFor(key);
+        lock.lock();
+        try {
+            Delta delta = new Delta(baselines.get(key), changes::add);
+            accounts.forEach(delta::accept);
+            baselines.put(key, delta.finish());
+        } finally {
+            lock.unlock();
+        }
+        return changes;
+    }
+
+    public void forget(String bankId, String customer) {
+        baselines.remove(new BaselineKey(bankId, customer));
+    }
+
+    private Lock lockFor(BaselineKey key) {
+        return locks.computeIfAbsent(key, ignored -> new ReentrantLock());
+    }
+
+    private static boolean changed(Account before, Account after) {
+        if (!Objects.equals(before.name(), after.name())) {
+            return true;
+        }
+        if (before.balance() == null || after.balance() == null) {
+            return before.balance() != after.balance();
+        }
+        return before.balance().compareTo(after.balance()) != 0;
+    }
+
+    // the same login at two banks is two customers
+    private record BaselineKey(String bankId, String customer) {
+    }
+
+    private static final class Delta {
+        private final Map<String, Account> remaining;
+        private final Map<String, Account> current = new LinkedHashMap<>();
+        private final Consumer<AccountChange> changes;
+
+        Delta(Map<String, Account> previous, Consumer<AccountChange> changes) {
+            this.remaining = previous == null ? new HashMap<>() : new LinkedHashMap<>(previous);
+            this.changes = changes;
+        }
+
+        void accept(Account account) {
+            current.put(account.accountNumber(), account);
+            Account before = remaining.remove(account.accountNumber());
+            if (before == null) {
+                changes.accept(AccountChange.added(account));
+            } else if (changed(before, account)) {
+                changes.accept(AccountChange.changed(before, account));
+            }
+        }
+
+        Map<String, Account> finish() {
+            remaining.values().forEach(gone -> changes.accept(AccountChange.removed(gone)));
+            return current;
+        }
+    }
+}
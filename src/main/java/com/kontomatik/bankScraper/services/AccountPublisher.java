@@ -0,0 +1,158 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// the flow runs on a virtual thread per subscription and blocks in the sink while the subscriber has no demand, so a
+// slow subscriber stops the response body from being read instead of piling accounts up in memory
+final class AccountPublisher implements Flow.Publisher<Account> {
+    private final BankOperationsService bank;
+    private final Credentials credentials;
+    private final ScrapeListener listener;
+
+    AccountPublisher(BankOperationsService bank, Credentials credentials, ScrapeListener listener) {
+        this.bank = bank;
+        this.credentials = credentials;
+        this.listener = listener;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Account> subscriber) {
+        Objects.requireNonNull(subscriber);
+        AccountSubscription subscription = new AccountSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.start();
+    }
+
+    private final class AccountSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Account> subscriber;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition demandChanged = lock.newCondition();
+        private long demand;
+        private boolean cancelled;
+        private IllegalArgumentException invalidRequest;
+        private Thread producer;
+
+        AccountSubscription(Flow.Subscriber<? super Account> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    // reported by the producer thread, so it cannot overlap an onNext in progress
+                    invalidRequest = new IllegalArgumentException("Subscriber requested " + n + " accounts, must be positive");
+                    cancelLocked();
+                    return;
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                demandChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void start() {
+            lock.lock();
+            try {
+                if (!cancelled) {
+                    producer = Thread.ofVirtual().name("account-publisher").start(this::produce);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            reportInvalidRequest();
+        }
+
+        private void produce() {
+            try {
+                bank.streamAccountData(credentials, listener, this::emit);
+            } catch (RuntimeException | Error e) {
+                if (!isCancelled()) {
+                    subscriber.onError(e);
+                    return;
+                }
+            }
+            if (isCancelled()) {
+                reportInvalidRequest();
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        private void emit(Account account) {
+            lock.lock();
+            try {
+                while (demand == 0 && !cancelled) {
+                    demandChanged.await();
+                }
+                if (cancelled) {
+                    throw new CancellationException("Subscriber cancelled");
+                }
+                demand--;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Subscriber cancelled");
+            } finally {
+                lock.unlock();
+            }
+            subscriber.onNext(account);
+        }
+
+        private void cancelLocked() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            demandChanged.signalAll();
+            if (producer != null) {
+                producer.interrupt();
+            }
+        }
+
+        private boolean isCancelled() {
+            lock.lock();
+            try {
+                return cancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void reportInvalidRequest() {
+            IllegalArgumentException error;
+            lock.lock();
+            try {
+                error = invalidRequest;
+                invalidRequest = null;
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                subscriber.onError(error);
+            }
+        }
+    }
+}
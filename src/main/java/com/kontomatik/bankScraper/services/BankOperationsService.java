@@ -4,7 +4,44 @@ import com.kontomatik.bankScraper.models.Account;
 import com.kontomatik.bankScraper.models.Credentials;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
 
 public interface BankOperationsService {
     List<Account> fetchAccountData(Credentials credentials);
-}
\ No newline at end of file
+
+    default List<Account> fetchAccountData(Credentials credentials, ScrapeListener listener) {
+        return fetchAccountData(credentials);
+    }
+
+    // hands each account to the sink as soon as it is decoded; banks that cannot stream hand over the finished list
+    default void streamAccountData(Credentials credentials, ScrapeListener listener, Consumer<Account> sink) {
+        fetchAccountData(credentials, listener).forEach(sink);
+    }
+
+    // the flow runs on its own virtual thread. Cancelling the returned future interrupts it, which aborts the request
+    // or 2FA wait in progress; stages derived from it do not pass cancellation back
+    default CompletableFuture<List<Account>> fetchAccountDataAsync(Credentials credentials, ScrapeListener listener) {
+        return InterruptibleFuture.supply(() -> fetchAccountData(credentials, listener));
+    }
+
+    default CompletableFuture<List<Account>> fetchAccountDataAsync(Credentials credentials) {
+        return fetchAccountDataAsync(credentials, ScrapeListener.NONE);
+    }
+
+    // cold: every subscriber runs its own flow, which waits for demand between accounts and is aborted by cancel()
+    default Flow.Publisher<Account> publishAccountData(Credentials credentials, ScrapeListener listener) {
+        return new AccountPublisher(this, credentials, listener);
+    }
+
+    default Flow.Publisher<Account> publishAccountData(Credentials credentials) {
+        return publishAccountData(credentials, ScrapeListener.NONE);
+    }
+
+    String bankHost();
+
+    default String bankId() {
+        return bankHost();
+    }
+}
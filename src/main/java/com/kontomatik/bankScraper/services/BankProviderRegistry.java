@@ -0,0 +1,103 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.MultiBankResult;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class BankProviderRegistry {
+    private final Map<String, BankOperationsService> providers = new LinkedHashMap<>();
+    private final String defaultBank;
+    private final Duration bankTimeout;
+
+    @Autowired
+    public BankProviderRegistry(List<BankOperationsService> providers,
+                                @Value("${banks.default:mbank}") String defaultBank,
+                                @Value("${banks.timeout.seconds:120}") long bankTimeoutSeconds,
+                                @Value("${banks.cache.ttl.seconds:30}") long cacheTtlSeconds,
+                                @Value("${banks.cache.maxEntries:1000}") int cacheMaxEntries,
+                                MeterRegistry meterRegistry,
+                                Tracer tracer) {
+        this(providers.stream()
+                        .<BankOperationsService>map(provider -> new CachingBankOperations(provider,
+                                Duration.ofSeconds(cacheTtlSeconds), cacheMaxEntries, Clock.systemUTC(), meterRegistry, tracer))
+                        .toList(),
+                defaultBank,
+                Duration.ofSeconds(bankTimeoutSeconds));
+    }
+
+    BankProviderRegistry(List<BankOperationsService> providers, String defaultBank, Duration bankTimeout) {
+        for (BankOperationsService provider : providers) {
+            if (this.providers.putIfAbsent(provider.bankId(), provider) != null) {
+                throw new IllegalStateException("More than one bank provider registered as " + provider.bankId());
+            }
+        }
+        this.defaultBank = defaultBank;
+        this.bankTimeout = bankTimeout;
+    }
+
+    public Set<String> bankIds() {
+        return providers.keySet();
+    }
+
+    public BankOperationsService provider(String bankId) {
+        BankOperationsService provider = providers.get(bankId);
+        if (provider == null) {
+            throw new NoSuchElementException("No bank provider registered as " + bankId + ", known: " + providers.keySet());
+        }
+        return provider;
+    }
+
+    public BankOperationsService defaultProvider() {
+        return provider(defaultBank);
+    }
+
+    // runs every bank concurrently against one shared deadline, so the call takes as long as the slowest bank;
+    // a bank that fails or overruns is reported in failures and does not hold back the accounts of the others.
+    // Library API for embedding code; the console run and the job server take a single login. Giving up on a bank
+    // cancels only this call's wait, so a flow shared with other callers of the same customer keeps running for them
+    public MultiBankResult fetchAll(Map<String, Credentials> credentialsByBank) {
+        credentialsByBank.keySet().forEach(this::provider);
+        Map<String, Future<List<Account>>> flows = new LinkedHashMap<>();
+        List<Account> accounts = new ArrayList<>();
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + bankTimeout.toNanos();
+        credentialsByBank.forEach((bankId, credentials) ->
+                flows.put(bankId, provider(bankId).fetchAccountDataAsync(credentials)));
+        for (Map.Entry<String, Future<List<Account>>> flow : flows.entrySet()) {
+            try {
+                accounts.addAll(flow.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                flow.getValue().cancel(true);
+                failures.put(flow.getKey(), new TimeoutException(flow.getKey() + " did not finish within " + bankTimeout));
+            } catch (ExecutionException e) {
+                failures.put(flow.getKey(), e.getCause() instanceof Exception cause ? cause : e);
+            } catch (InterruptedException e) {
+                flows.values().forEach(pending -> pending.cancel(true));
+                Thread.currentThread().interrupt();
+                failures.put(flow.getKey(), e);
+                break;
+            }
+        }
+        return new MultiBankResult(List.copyOf(accounts), Collections.unmodifiableMap(failures));
+    }
+}
@@ -0,0 +1,14 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.models.ScrapeResult;
+
+public interface BatchProgressListener {
+    BatchProgressListener NONE = new BatchProgressListener() {
+    };
+
+    default void onJobStarted(String username) {
+    }
+
+    default void onJobFinished(ScrapeResult result, int finished, int total) {
+    }
+}
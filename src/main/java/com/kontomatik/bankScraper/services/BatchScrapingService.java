@@ -0,0 +1,88 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.ScrapeResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class BatchScrapingService {
+    private final int maxConcurrentPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    public BatchScrapingService(@Value("${batch.maxConcurrentPerHost:16}") int maxConcurrentPerHost) {
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+    }
+
+    public List<ScrapeResult> scrapeAll(BankOperationsService bank, List<Credentials> customers) {
+        return scrapeAll(bank, customers, BatchProgressListener.NONE);
+    }
+
+    public List<ScrapeResult> scrapeAll(BankOperationsService bank, List<Credentials> customers, BatchProgressListener listener) {
+        Semaphore permits = hostPermits.computeIfAbsent(bank.bankHost(), host -> new Semaphore(maxConcurrentPerHost, true));
+        AtomicInteger finished = new AtomicInteger();
+        List<Future<ScrapeResult>> jobs;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            jobs = customers.stream()
+                    .map(credentials -> executor.submit(() -> runJob(bank, credentials, permits, listener, finished, customers.size())))
+                    .toList();
+        }
+        return jobs.stream()
+                .map(BatchScrapingService::resultOf)
+                .toList();
+    }
+
+    // failures are caught per job, so only an Error can fail one; it is not survivable and goes to the caller
+    private static ScrapeResult resultOf(Future<ScrapeResult> job) {
+        if (job.state() == Future.State.FAILED && job.exceptionNow() instanceof Error error) {
+            throw error;
+        }
+        return job.resultNow();
+    }
+
+    private ScrapeResult runJob(BankOperationsService bank,
+                                Credentials credentials,
+                                Semaphore permits,
+                                BatchProgressListener listener,
+                                AtomicInteger finished,
+                                int total) {
+        ScrapeResult result;
+        try {
+            permits.acquire();
+            try {
+                notifyListener(() -> listener.onJobStarted(credentials.username()));
+                List<Account> accounts = bank.fetchAccountData(credentials);
+                result = ScrapeResult.success(credentials.username(), accounts);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = ScrapeResult.failure(credentials.username(), e);
+        } catch (RuntimeException e) {
+            result = ScrapeResult.failure(credentials.username(), e);
+        }
+        ScrapeResult finishedResult = result;
+        int finishedCount = finished.incrementAndGet();
+        notifyListener(() -> listener.onJobFinished(finishedResult, finishedCount, total));
+        return result;
+    }
+
+    // a misbehaving listener must not turn a finished job into a failed one, nor break the batch result
+    private static void notifyListener(Runnable notification) {
+        try {
+            notification.run();
+        } catch (RuntimeException ignored) {
+        }
+    }
+}
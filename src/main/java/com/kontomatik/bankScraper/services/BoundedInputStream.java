@@ -0,0 +1,56 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.ResponseTooLargeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+class BoundedInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private final String url;
+    private long readBytes;
+
+    BoundedInputStream(InputStream in, long maxBytes, String url) {
+        super(in);
+        this.maxBytes = maxBytes;
+        this.url = url;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value != -1) {
+            count(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long bytes) throws ResponseTooLargeException {
+        readBytes += bytes;
+        if (readBytes > maxBytes) {
+            throw new ResponseTooLargeException("Response body from " + url + " exceeds " + maxBytes + " bytes");
+        }
+    }
+}
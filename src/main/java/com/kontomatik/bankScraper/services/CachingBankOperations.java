@@ -0,0 +1,322 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.CredentialsKey;
+import com.kontomatik.bankScraper.tracing.Scope;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+// callers asking for the same customer while a flow is running join it instead of logging in (and prompting the phone)
+// again, and a finished result is served for ttl. Keyed by the user name and a salted password hash, so a wrong
+// password never sees someone else's accounts and no plaintext password outlives the call; failures are shared with
+// whoever joined but never cached
+class CachingBankOperations implements BankOperationsService {
+    private final BankOperationsService delegate;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Map<CredentialsKey, CachedAccounts> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<CredentialsKey, Flight> inFlight = new HashMap<>();
+
+    CachingBankOperations(BankOperationsService delegate,
+                          Duration ttl,
+                          int maxEntries,
+                          Clock clock,
+                          MeterRegistry meterRegistry,
+                          Tracer tracer) {
+        this.delegate = delegate;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public List<Account> fetchAccountData(Credentials credentials) {
+        return fetchAccountData(credentials, ScrapeListener.NONE);
+    }
+
+    @Override
+    public List<Account> fetchAccountData(Credentials credentials, ScrapeListener listener) {
+        CompletableFuture<List<Account>> result = fetchAccountDataAsync(credentials, listener);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ScrapingException("Interrupted while waiting for the scrape");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new ScrapingException("Scrape failed: " + e.getCause().getMessage());
+        }
+    }
+
+    // the flight runs on its own thread and every caller gets its own future. Cancelling one only drops that caller;
+    // the flight is interrupted once no caller is left waiting for it
+    @Override
+    public CompletableFuture<List<Account>> fetchAccountDataAsync(Credentials credentials, ScrapeListener listener) {
+        CredentialsKey key = CredentialsKey.of(credentials);
+        Span parent = tracer.current();
+        List<Account> cached;
+        Flight flight;
+        boolean leader = false;
+        synchronized (this) {
+            cached = cached(key);
+            flight = cached == null ? inFlight.get(key) : null;
+            if (cached == null && flight == null) {
+                flight = launch(credentials, key, parent);
+                inFlight.put(key, flight);
+                leader = true;
+            }
+            if (flight != null) {
+                flight.waiters++;
+            }
+        }
+        if (cached != null) {
+            count("hit");
+            listener.onScrapeStarted();
+            return CompletableFuture.completedFuture(cached);
+        }
+        count(leader ? "miss" : "joined");
+        flight.join(listener);
+        Waiter waiter = new Waiter(key, flight, listener);
+        flight.run.whenComplete((accounts, e) -> {
+            if (e == null) {
+                waiter.complete(accounts);
+            } else {
+                waiter.completeExceptionally(e);
+            }
+        });
+        return waiter;
+    }
+
+    // a stream is not shared with concurrent callers, since a late joiner would miss the accounts already emitted;
+    // it is still served from and stored to the cache
+    @Override
+    public void streamAccountData(Credentials credentials, ScrapeListener listener, Consumer<Account> sink) {
+        CredentialsKey key = CredentialsKey.of(credentials);
+        List<Account> cached;
+        synchronized (this) {
+            cached = cached(key);
+        }
+        if (cached != null) {
+            count("hit");
+            listener.onScrapeStarted();
+            cached.forEach(sink);
+            return;
+        }
+        count("miss");
+        List<Account> accounts = new ArrayList<>();
+        delegate.streamAccountData(credentials, listener, account -> {
+            accounts.add(account);
+            sink.accept(account);
+        });
+        synchronized (this) {
+            store(key, List.copyOf(accounts));
+        }
+    }
+
+    @Override
+    public String bankHost() {
+        return delegate.bankHost();
+    }
+
+    @Override
+    public String bankId() {
+        return delegate.bankId();
+    }
+
+    synchronized int cachedEntries() {
+        return cache.size();
+    }
+
+    // the last caller to give up takes the flight out of the map before interrupting it, so nobody joins a flight
+    // that is being cancelled
+    private void leave(CredentialsKey key, Flight flight, ScrapeListener listener) {
+        boolean abandoned;
+        synchronized (this) {
+            abandoned = --flight.waiters == 0;
+            if (abandoned) {
+                inFlight.remove(key, flight);
+            }
+        }
+        flight.leave(listener);
+        if (abandoned) {
+            flight.run.cancel(true);
+        }
+    }
+
+    // called under the lock, so the flight is in the map before its thread can take it out again
+    private Flight launch(Credentials credentials, CredentialsKey key, Span parent) {
+        Flight flight = new Flight();
+        flight.run = InterruptibleFuture.supply(() -> {
+            try (Scope ignored = tracer.activate(parent)) {
+                return fly(credentials, key, flight);
+            }
+        });
+        return flight;
+    }
+
+    private List<Account> fly(Credentials credentials, CredentialsKey key, Flight flight) {
+        try {
+            List<Account> accounts = List.copyOf(delegate.fetchAccountData(credentials, flight));
+            synchronized (this) {
+                inFlight.remove(key, flight);
+                store(key, accounts);
+            }
+            return accounts;
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                inFlight.remove(key, flight);
+            }
+            throw e;
+        }
+    }
+
+    private List<Account> cached(CredentialsKey key) {
+        CachedAccounts cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (!clock.instant().isBefore(cached.expiresAt())) {
+            cache.remove(key);
+            return null;
+        }
+        return cached.accounts();
+    }
+
+    private void store(CredentialsKey key, List<Account> accounts) {
+        if (ttl.isZero() || maxEntries <= 0) {
+            return;
+        }
+        cache.put(key, new CachedAccounts(accounts, clock.instant().plus(ttl)));
+        Iterator<CachedAccounts> eldestFirst = cache.values().iterator();
+        while (cache.size() > maxEntries && eldestFirst.hasNext()) {
+            eldestFirst.next();
+            eldestFirst.remove();
+        }
+    }
+
+    private void count(String result) {
+        Counter.builder("bank.cache.requests")
+                .tag("bank", delegate.bankId())
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record CachedAccounts(List<Account> accounts, Instant expiresAt) {
+    }
+
+    // one caller's view of a flight; cancelling it drops only this caller, and stages derived from it do not pass
+    // cancellation back
+    private final class Waiter extends CompletableFuture<List<Account>> {
+        private final CredentialsKey key;
+        private final Flight flight;
+        private final ScrapeListener listener;
+
+        Waiter(CredentialsKey key, Flight flight, ScrapeListener listener) {
+            this.key = key;
+            this.flight = flight;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                leave(key, flight, listener);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new CompletableFuture<>();
+        }
+    }
+
+    // relays the leader's progress to every caller that joined, replaying what a late joiner missed, so each
+    // listener sees each event exactly once
+    private static final class Flight implements ScrapeListener {
+        private final List<ScrapeListener> listeners = new ArrayList<>();
+        // run and waiters are guarded by the decorator's lock; listeners and the two flags by the flight itself
+        private CompletableFuture<List<Account>> run;
+        private int waiters;
+        private boolean twoFactorAuthStarted;
+        private boolean scrapeStarted;
+
+        void join(ScrapeListener listener) {
+            boolean replayTwoFactorAuth;
+            boolean replayScrape;
+            synchronized (this) {
+                listeners.add(listener);
+                replayTwoFactorAuth = twoFactorAuthStarted;
+                replayScrape = scrapeStarted;
+            }
+            if (replayTwoFactorAuth) {
+                notifyListener(listener::onTwoFactorAuthStarted);
+            }
+            if (replayScrape) {
+                notifyListener(listener::onScrapeStarted);
+            }
+        }
+
+        synchronized void leave(ScrapeListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public void onTwoFactorAuthStarted() {
+            List<ScrapeListener> current;
+            synchronized (this) {
+                twoFactorAuthStarted = true;
+                current = List.copyOf(listeners);
+            }
+            current.forEach(listener -> notifyListener(listener::onTwoFactorAuthStarted));
+        }
+
+        @Override
+        public void onScrapeStarted() {
+            List<ScrapeListener> current;
+            synchronized (this) {
+                scrapeStarted = true;
+                current = List.copyOf(listeners);
+            }
+            current.forEach(listener -> notifyListener(listener::onScrapeStarted));
+        }
+
+        // one caller's misbehaving listener must not fail the scrape the others share
+        private static void notifyListener(Runnable notification) {
+            try {
+                notification.run();
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+}
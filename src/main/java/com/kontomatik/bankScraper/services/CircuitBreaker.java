@@ -0,0 +1,107 @@
+package com.kontomatik.bankScraper.services;
+
+import java.util.function.LongSupplier;
+
+class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoTime;
+    private final boolean[] window;
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    CircuitBreaker(double failureRateThreshold,
+                   int slidingWindowSize,
+                   int minimumCalls,
+                   long openDurationNanos,
+                   int halfOpenCalls,
+                   LongSupplier nanoTime) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+        this.openDurationNanos = openDurationNanos;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.nanoTime = nanoTime;
+        this.window = new boolean[slidingWindowSize];
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            trialsInFlight = 0;
+            trialSuccesses = 0;
+        }
+        if (state == State.OPEN) {
+            return false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsInFlight >= halfOpenCalls) {
+                return false;
+            }
+            trialsInFlight++;
+        }
+        return true;
+    }
+
+    synchronized void release() {
+        if (state == State.HALF_OPEN && trialsInFlight > 0) {
+            trialsInFlight--;
+        }
+    }
+
+    synchronized void onResult(boolean failure) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failure) {
+                    open();
+                } else if (++trialSuccesses >= halfOpenCalls) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                record(failure);
+                if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                    open();
+                }
+            }
+            case OPEN -> {
+                // late results from calls started before the breaker opened are ignored
+            }
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            failures -= window[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoTime.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.kontomatik.bankScraper.services;
+
+import org.jsoup.Connection;
+
+// idempotent endpoints are retried on any transient failure; the rest only when the request never left the client
+public record Endpoint(String name, Connection.Method method, boolean idempotent, boolean hedgeable, RetryPolicy retryPolicy) {
+
+    public static Endpoint idempotent(String name, Connection.Method method, RetryPolicy retryPolicy) {
+        return new Endpoint(name, method, true, false, retryPolicy);
+    }
+
+    public static Endpoint nonIdempotent(String name, Connection.Method method, RetryPolicy retryPolicy) {
+        return new Endpoint(name, method, false, false, retryPolicy);
+    }
+
+    // a slow call may be raced by a second copy, which only makes sense for reads
+    public Endpoint withHedging() {
+        if (!idempotent || method.hasBody()) {
+            throw new IllegalArgumentException("Only idempotent GETs can be hedged: " + name);
+        }
+        return new Endpoint(name, method, idempotent, true, retryPolicy);
+    }
+}
@@ -0,0 +1,94 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.RequestRejectedException;
+import io.micrometer.core.instrument.Counter;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+class HostGuard {
+    private final String host;
+    private final CircuitBreaker circuitBreaker;
+    private final TokenBucket rateLimiter;
+    private final Semaphore bulkhead;
+    private final long rateLimitWaitNanos;
+    private final long bulkheadWaitNanos;
+    private final Counter circuitOpenRejections;
+    private final Counter rateLimitedRejections;
+    private final Counter bulkheadFullRejections;
+
+    HostGuard(String host,
+              CircuitBreaker circuitBreaker,
+              TokenBucket rateLimiter,
+              Semaphore bulkhead,
+              long rateLimitWaitNanos,
+              long bulkheadWaitNanos,
+              Counter circuitOpenRejections,
+              Counter rateLimitedRejections,
+              Counter bulkheadFullRejections) {
+        this.host = host;
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimiter = rateLimiter;
+        this.bulkhead = bulkhead;
+        this.rateLimitWaitNanos = rateLimitWaitNanos;
+        this.bulkheadWaitNanos = bulkheadWaitNanos;
+        this.circuitOpenRejections = circuitOpenRejections;
+        this.rateLimitedRejections = rateLimitedRejections;
+        this.bulkheadFullRejections = bulkheadFullRejections;
+    }
+
+    void acquire() throws RequestRejectedException, InterruptedIOException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw reject(circuitOpenRejections, "Circuit breaker is open for " + host);
+        }
+        boolean slotTaken = false;
+        boolean acquired = false;
+        try {
+            // the slot comes first, so a call turned away by a full bulkhead does not spend rate budget
+            if (!bulkhead.tryAcquire(bulkheadWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw reject(bulkheadFullRejections, "Too many concurrent requests to " + host);
+            }
+            slotTaken = true;
+            if (!rateLimiter.tryAcquire(rateLimitWaitNanos)) {
+                throw reject(rateLimitedRejections, "Rate limit exceeded for " + host);
+            }
+            acquired = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call " + host);
+        } finally {
+            if (!acquired) {
+                if (slotTaken) {
+                    bulkhead.release();
+                }
+                circuitBreaker.release();
+            }
+        }
+    }
+
+    void release(boolean failure) {
+        bulkhead.release();
+        circuitBreaker.onResult(failure);
+    }
+
+    // for a call we cancelled ourselves: the bank never answered, so the breaker records nothing, and a half-open
+    // trial slot is handed back rather than counted as a success
+    void abandon() {
+        bulkhead.release();
+        circuitBreaker.release();
+    }
+
+    CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    int inFlight(int maxConcurrent) {
+        return maxConcurrent - bulkhead.availablePermits();
+    }
+
+    private static RequestRejectedException reject(Counter rejections, String message) {
+        rejections.increment();
+        return new RequestRejectedException(message);
+    }
+}
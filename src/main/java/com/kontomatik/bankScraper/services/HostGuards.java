@@ -0,0 +1,85 @@
+package com.kontomatik.bankScraper.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class HostGuards {
+    private final Map<String, HostGuard> guards = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long rateLimitWaitMillis;
+    private final int maxConcurrent;
+    private final long bulkheadWaitMillis;
+    private final double failureRateThreshold;
+    private final int slidingWindowSize;
+    private final int minimumCalls;
+    private final long openDurationMillis;
+    private final int halfOpenCalls;
+
+    public HostGuards(MeterRegistry meterRegistry,
+                      @Value("${http.rateLimit.permitsPerSecond:20}") double permitsPerSecond,
+                      @Value("${http.rateLimit.burst:40}") int burst,
+                      @Value("${http.rateLimit.maxWait.millis:1000}") long rateLimitWaitMillis,
+                      @Value("${http.bulkhead.maxConcurrent:32}") int maxConcurrent,
+                      @Value("${http.bulkhead.maxWait.millis:2000}") long bulkheadWaitMillis,
+                      @Value("${http.circuitBreaker.failureRateThreshold:0.5}") double failureRateThreshold,
+                      @Value("${http.circuitBreaker.slidingWindowSize:20}") int slidingWindowSize,
+                      @Value("${http.circuitBreaker.minimumCalls:10}") int minimumCalls,
+                      @Value("${http.circuitBreaker.openDuration.millis:30000}") long openDurationMillis,
+                      @Value("${http.circuitBreaker.halfOpenCalls:3}") int halfOpenCalls) {
+        this.meterRegistry = meterRegistry;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.rateLimitWaitMillis = rateLimitWaitMillis;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    HostGuard forHost(String host) {
+        return guards.computeIfAbsent(String.valueOf(host), this::createGuard);
+    }
+
+    private HostGuard createGuard(String host) {
+        HostGuard guard = new HostGuard(
+                host,
+                new CircuitBreaker(failureRateThreshold, slidingWindowSize, minimumCalls,
+                        TimeUnit.MILLISECONDS.toNanos(openDurationMillis), halfOpenCalls, System::nanoTime),
+                new TokenBucket(permitsPerSecond, burst, System::nanoTime),
+                new Semaphore(maxConcurrent, true),
+                TimeUnit.MILLISECONDS.toNanos(rateLimitWaitMillis),
+                TimeUnit.MILLISECONDS.toNanos(bulkheadWaitMillis),
+                rejections(host, "circuit_open"),
+                rejections(host, "rate_limited"),
+                rejections(host, "bulkhead_full"));
+        Gauge.builder("bank.http.circuit.state", guard, g -> g.circuitState().ordinal())
+                .tag("host", host)
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+        Gauge.builder("bank.http.inflight", guard, g -> g.inFlight(maxConcurrent))
+                .tag("host", host)
+                .register(meterRegistry);
+        return guard;
+    }
+
+    private Counter rejections(String host, String reason) {
+        return Counter.builder("bank.http.rejected")
+                .tag("host", host)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
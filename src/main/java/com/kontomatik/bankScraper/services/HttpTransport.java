@@ -0,0 +1,10 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.mbank.RequestParams;
+import org.jsoup.Connection;
+
+import java.io.IOException;
+
+public interface HttpTransport {
+    TransportResponse execute(String url, Connection.Method method, RequestParams params) throws IOException;
+}
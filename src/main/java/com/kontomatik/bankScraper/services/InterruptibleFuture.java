@@ -0,0 +1,49 @@
+package com.kontomatik.bankScraper.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// CompletableFuture.cancel only completes the future; this one also interrupts the thread computing it
+final class InterruptibleFuture<T> extends CompletableFuture<T> {
+    private volatile Thread runner;
+
+    private InterruptibleFuture() {
+    }
+
+    static <T> CompletableFuture<T> supply(Supplier<T> body) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        Thread.ofVirtual().name("bank-flow").start(() -> future.run(body));
+        return future;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        Thread running = runner;
+        if (cancelled && running != null) {
+            running.interrupt();
+        }
+        return cancelled;
+    }
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new CompletableFuture<>();
+    }
+
+    // runner is published before the isDone check, so a cancel racing with the start either sees the thread or
+    // is seen by it
+    private void run(Supplier<T> body) {
+        runner = Thread.currentThread();
+        if (isDone()) {
+            return;
+        }
+        try {
+            complete(body.get());
+        } catch (Throwable e) {
+            completeExceptionally(e);
+        } finally {
+            runner = null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.kontomatik.bankScraper.services;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+public interface JsonAdapter<T> {
+    Class<T> type();
+
+    T read(JsonReader reader) throws IOException;
+
+    static <T> JsonAdapter<T> of(Class<T> type, Reading<T> reading) {
+        return new JsonAdapter<>() {
+            @Override
+            public Class<T> type() {
+                return type;
+            }
+
+            @Override
+            public T read(JsonReader reader) throws IOException {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    return null;
+                }
+                return reading.read(reader);
+            }
+        };
+    }
+
+    // for the common response shape of one string field we care about among many we skip
+    static <T> JsonAdapter<T> stringField(Class<T> type, String field, Function<String, T> factory) {
+        return of(type, reader -> {
+            String value = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(field)) {
+                    value = readString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return factory.apply(value);
+        });
+    }
+
+    // same coercions as Gson's built-in adapters, so switching a record over does not change what it accepts
+    static String readString(JsonReader reader) throws IOException {
+        return switch (reader.peek()) {
+            case NULL -> {
+                reader.nextNull();
+                yield null;
+            }
+            case BOOLEAN -> Boolean.toString(reader.nextBoolean());
+            default -> reader.nextString();
+        };
+    }
+
+    static boolean readBoolean(JsonReader reader) throws IOException {
+        return switch (reader.peek()) {
+            case NULL -> {
+                reader.nextNull();
+                yield false;
+            }
+            case STRING -> Boolean.parseBoolean(reader.nextString());
+            default -> reader.nextBoolean();
+        };
+    }
+
+    @FunctionalInterface
+    interface Reading<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+}
@@ -0,0 +1,72 @@
+package com.kontomatik.bankScraper.services;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class JsonCodec {
+    public static final String MALFORMED_BODY = "Something went wrong while parsing the response body";
+
+    private final Map<Class<?>, JsonAdapter<?>> adapters = new ConcurrentHashMap<>();
+    private final Gson gson;
+
+    public JsonCodec(List<JsonAdapter<?>> adapters, Gson gson) {
+        this.gson = gson;
+        for (JsonAdapter<?> adapter : adapters) {
+            if (this.adapters.putIfAbsent(adapter.type(), adapter) != null) {
+                throw new IllegalStateException("More than one JSON adapter registered for " + adapter.type().getName());
+            }
+        }
+    }
+
+    // registered adapters win; anything else still goes through Gson's reflective binding
+    @SuppressWarnings("unchecked")
+    public <T> JsonAdapter<T> adapter(Class<T> type) {
+        return (JsonAdapter<T>) adapters.computeIfAbsent(type, ignored -> JsonAdapter.of(type, gson.getAdapter(type)::read));
+    }
+
+    public <T> T decode(Reader body, Class<T> type) throws IOException, ResponseHandlingException {
+        JsonAdapter<T> adapter = adapter(type);
+        JsonReader reader = new JsonReader(body);
+        reader.setStrictness(Strictness.LENIENT);
+        try {
+            if (isEmptyDocument(reader)) {
+                return null;
+            }
+            T value = adapter.read(reader);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new ResponseHandlingException(MALFORMED_BODY);
+            }
+            return value;
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new ResponseHandlingException(MALFORMED_BODY);
+        } catch (JsonParseException e) {
+            if (e.getCause() instanceof IOException io && !(io instanceof MalformedJsonException)) {
+                throw io;
+            }
+            throw new ResponseHandlingException(MALFORMED_BODY);
+        }
+    }
+
+    private static boolean isEmptyDocument(JsonReader reader) throws IOException {
+        try {
+            reader.peek();
+            return false;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+}
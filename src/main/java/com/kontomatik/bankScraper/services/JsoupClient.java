@@ -1,32 +1,321 @@
 package com.kontomatik.bankScraper.services;
 
+import com.kontomatik.bankScraper.exceptions.RequestRejectedException;
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
 import com.kontomatik.bankScraper.mbank.RequestParams;
+import com.kontomatik.bankScraper.tracing.Span;
+import com.kontomatik.bankScraper.tracing.SpanKind;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.jsoup.Connection;
-import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class JsoupClient {
+    private static final int LATENCY_SAMPLES = 128;
 
-    public Connection.Response sendRequest(
+    private final HttpTransport transport;
+    private final MeterRegistry meterRegistry;
+    private final HostGuards hostGuards;
+    private final Tracer tracer;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final int hedgeMinSamples;
+    private final long hedgeMinDelayNanos;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final ExecutorService hedgeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public JsoupClient(HttpTransport transport,
+                       MeterRegistry meterRegistry,
+                       HostGuards hostGuards,
+                       Tracer tracer,
+                       @Value("${http.hedge.enabled:false}") boolean hedgingEnabled,
+                       @Value("${http.hedge.percentile:0.95}") double hedgePercentile,
+                       @Value("${http.hedge.minSamples:20}") int hedgeMinSamples,
+                       @Value("${http.hedge.minDelay.millis:50}") long hedgeMinDelayMillis) {
+        this.transport = transport;
+        this.meterRegistry = meterRegistry;
+        this.hostGuards = hostGuards;
+        this.tracer = tracer;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinSamples = hedgeMinSamples;
+        this.hedgeMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMillis);
+    }
+
+    // one attempt per retry; the last attempt's response is returned as is, whatever its status
+    public TransportResponse sendRequest(Endpoint endpoint, String url, RequestParams params) throws IOException {
+        RetryPolicy policy = endpoint.retryPolicy();
+        for (int attempt = 1; ; attempt++) {
+            TransportResponse response = sendAttempt(endpoint, url, params, attempt >= policy.maxAttempts());
+            if (response != null) {
+                return response;
+            }
+            countRetry(endpoint);
+            pause(policy.backoffBefore(attempt).toNanos(), url);
+        }
+    }
+
+    // the whole step is repeated for idempotent endpoints, reading the body included, so a connection the bank drops
+    // halfway through the body is sent again just like one dropped before the headers; the send and the body share
+    // one attempt budget
+    public <T> T exchange(Endpoint endpoint, String url, RequestParams params, ResponseReader<T> reader)
+            throws IOException, ResponseHandlingException {
+        RetryPolicy policy = endpoint.retryPolicy();
+        for (int attempt = 1; ; attempt++) {
+            boolean lastAttempt = attempt >= policy.maxAttempts();
+            try (TransportResponse response = sendAttempt(endpoint, url, params, lastAttempt)) {
+                if (response != null) {
+                    try {
+                        T result = reader.read(response);
+                        // whatever the reader left unread is drained here, so a drop in the tail is retried as well
+                        response.close();
+                        return result;
+                    } catch (IOException e) {
+                        if (lastAttempt || !endpoint.idempotent() || !response.bodyReadFailed()) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+            countRetry(endpoint);
+            pause(policy.backoffBefore(attempt).toNanos(), url);
+        }
+    }
+
+    // a single send; null means the attempt failed in a way worth another one
+    private TransportResponse sendAttempt(Endpoint endpoint, String url, RequestParams params, boolean lastAttempt)
+            throws IOException {
+        try {
+            TransportResponse response = endpoint.hedgeable() && hedgingEnabled
+                    ? sendHedged(endpoint, url, params)
+                    : sendTimed(endpoint, url, params);
+            if (lastAttempt || !endpoint.idempotent() || !isTransientStatus(response.statusCode())) {
+                return response;
+            }
+            response.close();
+        } catch (IOException e) {
+            if (lastAttempt || !isRetriable(endpoint, e)) {
+                throw e;
+            }
+        }
+        return null;
+    }
+
+    public TransportResponse sendRequest(
             String url,
             Connection.Method method,
             RequestParams params
     ) throws IOException {
-        Connection connection = Jsoup.connect(url)
-                .headers(params.headers())
-                .ignoreContentType(params.ignoreContentType())
-                .ignoreHttpErrors(true)
-                .cookies(params.cookies())
-                .method(method);
-
-        if (params.requestBody() != null && !params.requestBody().isEmpty()) {
-            connection.requestBody(params.requestBody());
-        } else {
-            connection.data(params.data());
-        }
-        return connection.execute();
+        URI uri = URI.create(url);
+        Span span = tracer.startSpan(method.name() + " " + uri.getPath(), SpanKind.CLIENT)
+                .setAttribute("http.request.method", method.name())
+                .setAttribute("url.template", uri.getPath())
+                .setAttribute("server.address", uri.getHost())
+                .setAttribute("http.request.cookie.count", params.cookies() == null ? 0 : params.cookies().size());
+        try {
+            TransportResponse response = sendGuarded(uri, url, method, params);
+            span.setAttribute("http.response.status_code", response.statusCode())
+                    .setAttribute("http.response.set_cookie.count", response.setCookies().size());
+            if (response.statusCode() >= 400) {
+                span.recordError("HTTP " + response.statusCode());
+            }
+            response.onClose(bytes -> span.setAttribute("http.response.body.size", bytes).end());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            span.recordError(e).end();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    // the bulkhead slot is held and the breaker outcome settled only once the response is closed, so a body still
+    // being streamed counts against the host's limit, and a connection dropped mid-body counts as a failure
+    private TransportResponse sendGuarded(URI uri, String url, Connection.Method method, RequestParams params) throws IOException {
+        HostGuard guard = hostGuards.forHost(uri.getHost());
+        guard.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "IO_ERROR";
+        TransportResponse response = null;
+        boolean failure = true;
+        boolean abandoned = false;
+        try {
+            response = transport.execute(url, method, params);
+            status = String.valueOf(response.statusCode());
+            boolean failedStatus = isBankFailure(response.statusCode());
+            TransportResponse settled = response;
+            response.onClose(bytes -> guard.release(failedStatus || settled.bodyReadFailed()));
+            return response;
+        } catch (UnsupportedMimeTypeException e) {
+            failure = false;
+            throw e;
+        } catch (IOException e) {
+            // a read timeout is the bank's doing, our own interrupt is not
+            abandoned = Thread.currentThread().isInterrupted();
+            throw e;
+        } finally {
+            if (response == null && abandoned) {
+                guard.abandon();
+            } else if (response == null) {
+                guard.release(failure);
+            }
+            sample.stop(Timer.builder("bank.http.requests")
+                    .tag("host", String.valueOf(uri.getHost()))
+                    .tag("uri", String.valueOf(uri.getPath()))
+                    .tag("method", method.name())
+                    .tag("status", status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private TransportResponse sendTimed(Endpoint endpoint, String url, RequestParams params) throws IOException {
+        long start = System.nanoTime();
+        TransportResponse response = sendRequest(url, endpoint.method(), params);
+        if (!isBankFailure(response.statusCode())) {
+            latencies(endpoint).record(System.nanoTime() - start);
+        }
+        return response;
+    }
+
+    // once the first copy is slower than the endpoint's usual tail, a second copy races it and the first answer wins.
+    // Until the endpoint has enough samples to know its tail, it is not hedged at all
+    private TransportResponse sendHedged(Endpoint endpoint, String url, RequestParams params) throws IOException {
+        OptionalLong tail = latencies(endpoint).percentile(hedgePercentile, hedgeMinSamples);
+        if (tail.isEmpty()) {
+            return sendTimed(endpoint, url, params);
+        }
+        AtomicBoolean answered = new AtomicBoolean();
+        CompletionService<TransportResponse> race = new ExecutorCompletionService<>(hedgeExecutor);
+        Future<TransportResponse> primary = race.submit(tracer.wrap(() -> claim(sendTimed(endpoint, url, params), answered)));
+        Future<TransportResponse> hedge = null;
+        try {
+            Future<TransportResponse> first = race.poll(Math.max(tail.getAsLong(), hedgeMinDelayNanos), TimeUnit.NANOSECONDS);
+            if (first == null) {
+                countHedge(endpoint);
+                hedge = race.submit(tracer.wrap(() -> claim(sendTimed(endpoint, url, params), answered)));
+                first = race.take();
+            }
+            try {
+                return first.get();
+            } catch (ExecutionException e) {
+                if (hedge == null) {
+                    throw unwrap(e);
+                }
+                // one copy failed; the other may still answer
+                return race.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + url);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    // the copy that loses the race closes its own response so the connection goes back to the pool
+    private static TransportResponse claim(TransportResponse response, AtomicBoolean answered) throws IOException {
+        if (!answered.compareAndSet(false, true)) {
+            response.close();
+            throw new InterruptedIOException("Lost the hedging race");
+        }
+        return response;
+    }
+
+    private LatencyWindow latencies(Endpoint endpoint) {
+        return latencies.computeIfAbsent(endpoint.name(), name -> new LatencyWindow(LATENCY_SAMPLES));
+    }
+
+    private static boolean isRetriable(Endpoint endpoint, IOException e) {
+        if (Thread.currentThread().isInterrupted() || e instanceof RequestRejectedException || e instanceof UnsupportedMimeTypeException) {
+            return false;
+        }
+        // a lost hedging race is not worth another attempt, a read timeout is
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return false;
+        }
+        // the request never reached the bank, so even a non-idempotent call is safe to send again
+        if (e instanceof ConnectException || e instanceof HttpConnectTimeoutException) {
+            return true;
+        }
+        return endpoint.idempotent();
+    }
+
+    private static boolean isTransientStatus(int statusCode) {
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof IOException ioException) {
+            return ioException;
+        }
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        return new IOException(e.getCause());
+    }
+
+    private static void pause(long nanos, String url) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off from " + url);
+        }
+    }
+
+    private void countRetry(Endpoint endpoint) {
+        Counter.builder("bank.http.retries")
+                .tag("endpoint", endpoint.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void countHedge(Endpoint endpoint) {
+        Counter.builder("bank.http.hedges")
+                .tag("endpoint", endpoint.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static boolean isBankFailure(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        T read(TransportResponse response) throws IOException, ResponseHandlingException;
     }
 }
@@ -0,0 +1,47 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.mbank.RequestParams;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+@Component
+@ConditionalOnProperty(name = "http.transport", havingValue = "jsoup")
+public class JsoupTransport implements HttpTransport {
+    private final long maxBodySize;
+
+    public JsoupTransport(@Value("${http.response.maxBodySize.bytes:16777216}") long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public TransportResponse execute(String url, Connection.Method method, RequestParams params) throws IOException {
+        Connection connection = Jsoup.connect(url)
+                .headers(params.headers())
+                .ignoreContentType(params.ignoreContentType())
+                .ignoreHttpErrors(true)
+                .maxBodySize(0)
+                .cookies(params.cookies())
+                .method(method);
+
+        if (params.requestBody() != null && !params.requestBody().isEmpty()) {
+            connection.requestBody(params.requestBody());
+        } else {
+            connection.data(params.data());
+        }
+        Connection.Response response = connection.execute();
+        Charset charset = response.charset() != null ? Charset.forName(response.charset()) : StandardCharsets.UTF_8;
+        return new TransportResponse(
+                response.statusCode(),
+                response.headers(),
+                TransportResponse.parseSetCookies(response.headers("Set-Cookie")),
+                new BoundedInputStream(response.bodyStream(), maxBodySize, url),
+                charset);
+    }
+}
@@ -0,0 +1,31 @@
+package com.kontomatik.bankScraper.services;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+// the last few latencies of one endpoint, enough to tell what "slower than usual" means for it
+class LatencyWindow {
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    synchronized OptionalLong percentile(double percentile, int minSamples) {
+        if (size < minSamples || size == 0) {
+            return OptionalLong.empty();
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return OptionalLong.of(sorted[Math.clamp(index, 0, size - 1)]);
+    }
+}
@@ -0,0 +1,207 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.mbank.RequestParams;
+import jakarta.annotation.PreDestroy;
+import org.jsoup.Connection;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+@Component
+@ConditionalOnProperty(name = "http.transport", havingValue = "pooled", matchIfMissing = true)
+public class PooledHttpTransport implements HttpTransport {
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
+    private static final Pattern XML_CONTENT_TYPE = Pattern.compile("(?:application|text)/\\w*\\+?xml.*");
+    private static final Pattern CHARSET = Pattern.compile("(?i)\\bcharset=\\s*\"?([^\\s;\"]+)");
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final String userAgent;
+    private final long maxBodySize;
+
+    public PooledHttpTransport(@Value("${http.pool.size:64}") int poolSize,
+                               @Value("${http.pool.keepAlive.seconds:30}") int keepAliveSeconds,
+                               @Value("${http.connect.timeout.millis:10000}") int connectTimeoutMillis,
+                               @Value("${http.request.timeout.millis:30000}") int requestTimeoutMillis,
+                               @Value("${http.response.maxBodySize.bytes:16777216}") long maxBodySize,
+                               @Value("${userAgent}") String userAgent) {
+        configureConnectionPool(poolSize, keepAliveSeconds);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.userAgent = userAgent;
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public TransportResponse execute(String url, Connection.Method method, RequestParams params) throws IOException {
+        HttpResponse<InputStream> response = send(buildRequest(url, method, params));
+        HttpHeaders headers = response.headers();
+        String contentType = headers.firstValue("Content-Type").orElse(null);
+        InputStream body = response.body();
+        try {
+            validateContentType(url, contentType, params.ignoreContentType());
+            if (isGzipped(headers)) {
+                body = decompress(body);
+            }
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+        return new TransportResponse(
+                response.statusCode(),
+                flattenHeaders(headers),
+                TransportResponse.parseSetCookies(headers.allValues("Set-Cookie")),
+                new BoundedInputStream(body, maxBodySize, url),
+                charsetOf(contentType));
+    }
+
+    @PreDestroy
+    void close() {
+        httpClient.close();
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to " + request.uri() + " was interrupted");
+        }
+    }
+
+    private HttpRequest buildRequest(String url, Connection.Method method, RequestParams params) {
+        boolean hasBody = method.hasBody();
+        boolean hasRequestBody = params.requestBody() != null && !params.requestBody().isEmpty();
+        String formData = encodeFormData(params.data());
+        String target = !hasBody && !formData.isEmpty() ? appendQuery(url, formData) : url;
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target))
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "gzip");
+        if (target.startsWith("http:")) {
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+        params.headers().forEach(builder::header);
+        if (!containsHeader(params.headers(), "User-Agent")) {
+            builder.header("User-Agent", userAgent);
+        }
+        if (!params.cookies().isEmpty()) {
+            builder.header("Cookie", encodeCookies(params.cookies()));
+        }
+        if (hasBody) {
+            if (!containsHeader(params.headers(), "Content-Type")) {
+                builder.header("Content-Type", FORM_CONTENT_TYPE);
+            }
+            String body = hasRequestBody ? params.requestBody() : formData;
+            builder.method(method.name(), HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+        } else {
+            builder.method(method.name(), HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
+
+    private static void validateContentType(String url, String contentType, boolean ignoreContentType) throws UnsupportedMimeTypeException {
+        if (!ignoreContentType && contentType != null && !contentType.startsWith("text/")
+                && !XML_CONTENT_TYPE.matcher(contentType).matches()) {
+            throw new UnsupportedMimeTypeException(
+                    "Unhandled content type. Must be text/*, application/xml, or application/*+xml", contentType, url);
+        }
+    }
+
+    private static Map<String, String> flattenHeaders(HttpHeaders headers) {
+        Map<String, String> flattened = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.map().forEach((name, values) -> flattened.put(name, String.join(", ", values)));
+        return flattened;
+    }
+
+    private static boolean isGzipped(HttpHeaders headers) {
+        return headers.firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+    }
+
+    private static InputStream decompress(InputStream body) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(body, 1);
+        int first = pushback.read();
+        if (first == -1) {
+            return pushback;
+        }
+        pushback.unread(first);
+        return new GZIPInputStream(pushback);
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            Matcher matcher = CHARSET.matcher(contentType);
+            if (matcher.find()) {
+                try {
+                    return Charset.forName(matcher.group(1));
+                } catch (IllegalArgumentException ignored) {
+                    // unknown charsets fall back to UTF-8
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static String encodeFormData(Map<String, String> data) {
+        return data.entrySet().stream()
+                .map(entry -> URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8)
+                        + "=" + URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String encodeCookies(Map<String, String> cookies) {
+        return cookies.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String appendQuery(String url, String query) {
+        return url + (url.contains("?") ? "&" : "?") + query;
+    }
+
+    private static boolean containsHeader(Map<String, String> headers, String name) {
+        return headers.keySet().stream().anyMatch(name::equalsIgnoreCase);
+    }
+
+    // The JDK client reads its pool settings once per JVM, so explicit -D flags take precedence. These are system
+    // properties, so they also apply to every other HttpClient in the process, the OTLP span exporter included.
+    private static void configureConnectionPool(int poolSize, int keepAliveSeconds) {
+        setIfAbsent("jdk.httpclient.connectionPoolSize", poolSize);
+        setIfAbsent("jdk.httpclient.keepalive.timeout", keepAliveSeconds);
+    }
+
+    private static void setIfAbsent(String property, int value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, String.valueOf(value));
+        }
+    }
+}
@@ -1,23 +1,88 @@
 package com.kontomatik.bankScraper.services;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
 import org.springframework.stereotype.Service;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.function.Consumer;
+
 @Service
 public class ResponseHandler {
-    private final Gson gson;
+    private final JsonCodec codec;
 
-    public ResponseHandler(Gson gson) {
-        this.gson = gson;
+    public ResponseHandler(JsonCodec codec) {
+        this.codec = codec;
     }
 
     public <T> T handleResponse(String responseBody, Class<T> responseClass) throws ResponseHandlingException {
         try {
-            return gson.fromJson(responseBody, responseClass);
-        } catch (JsonSyntaxException e) {
-            throw new ResponseHandlingException("Something went wrong while parsing the response body");
+            return codec.decode(new StringReader(responseBody), responseClass);
+        } catch (IOException e) {
+            throw new ResponseHandlingException(JsonCodec.MALFORMED_BODY);
+        }
+    }
+
+    public <T> T handleResponse(Reader responseBody, Class<T> responseClass) throws IOException, ResponseHandlingException {
+        return codec.decode(responseBody, responseClass);
+    }
+
+    public <T> boolean streamElements(Reader responseBody,
+                                      Class<T> elementClass,
+                                      Consumer<T> action,
+                                      String... path) throws IOException, ResponseHandlingException {
+        JsonAdapter<T> adapter = codec.adapter(elementClass);
+        try {
+            JsonReader reader = new JsonReader(responseBody);
+            if (isEmptyDocument(reader)) {
+                return false;
+            }
+            streamArrayField(reader, path, 0, adapter, action);
+            return true;
+        } catch (MalformedJsonException | IllegalStateException | JsonParseException e) {
+            throw new ResponseHandlingException(JsonCodec.MALFORMED_BODY);
+        }
+    }
+
+    private <T> void streamArrayField(JsonReader reader,
+                                      String[] path,
+                                      int depth,
+                                      JsonAdapter<T> adapter,
+                                      Consumer<T> action) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals(path[depth]) || reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (depth == path.length - 1) {
+                    action.accept(adapter.read(reader));
+                } else {
+                    streamArrayField(reader, path, depth + 1, adapter, action);
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    private static boolean isEmptyDocument(JsonReader reader) throws IOException {
+        try {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return true;
+            }
+            return false;
+        } catch (EOFException e) {
+            return true;
         }
     }
 }
@@ -0,0 +1,15 @@
+package com.kontomatik.bankScraper.services;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, double multiplier) {
+
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO, 1);
+
+    // full jitter: a random pause up to the exponential cap, so clients failing together do not retry together
+    public Duration backoffBefore(int retry) {
+        double cap = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() * Math.pow(multiplier, retry - 1));
+        return Duration.ofNanos((long) (ThreadLocalRandom.current().nextDouble() * cap));
+    }
+}
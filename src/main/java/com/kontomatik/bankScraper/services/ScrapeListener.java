@@ -0,0 +1,12 @@
+package com.kontomatik.bankScraper.services;
+
+public interface ScrapeListener {
+    ScrapeListener NONE = new ScrapeListener() {
+    };
+
+    default void onTwoFactorAuthStarted() {
+    }
+
+    default void onScrapeStarted() {
+    }
+}
@@ -0,0 +1,44 @@
+package com.kontomatik.bankScraper.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+class TokenBucket {
+    private final double permitsPerNano;
+    private final double capacity;
+    private final LongSupplier nanoTime;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    boolean tryAcquire(long maxWaitNanos) throws InterruptedException {
+        long waitNanos = reserve(maxWaitNanos);
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    // takes a token now or books one in the future; -1 when the wait would exceed maxWaitNanos
+    synchronized long reserve(long maxWaitNanos) {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+}
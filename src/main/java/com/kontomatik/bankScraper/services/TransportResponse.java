@@ -0,0 +1,194 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.ResponseTooLargeException;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpCookie;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+public class TransportResponse implements Closeable {
+    private final int statusCode;
+    private final Map<String, String> headers;
+    private final List<HttpCookie> setCookies;
+    private final Map<String, String> cookies;
+    private final CountingInputStream bodyStream;
+    private final Charset charset;
+    private String body;
+    private boolean closed;
+    private LongConsumer closeListener;
+
+    public TransportResponse(int statusCode,
+                             Map<String, String> headers,
+                             List<HttpCookie> setCookies,
+                             InputStream bodyStream,
+                             Charset charset) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.setCookies = setCookies;
+        this.cookies = toMap(setCookies);
+        this.bodyStream = new CountingInputStream(bodyStream);
+        this.charset = charset;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    public Map<String, String> headers() {
+        return headers;
+    }
+
+    public Map<String, String> cookies() {
+        return cookies;
+    }
+
+    public List<HttpCookie> setCookies() {
+        return setCookies;
+    }
+
+    public InputStream bodyStream() {
+        return bodyStream;
+    }
+
+    public Reader bodyReader() {
+        return new InputStreamReader(bodyStream, charset);
+    }
+
+    // called once with the number of body bytes received, as soon as the body is read in full or the response closed;
+    // listeners run in the order they were added
+    public void onClose(LongConsumer listener) {
+        this.closeListener = closeListener == null ? listener : closeListener.andThen(listener);
+    }
+
+    // whether reading the body failed on the bank's side, e.g. the connection was reset halfway through
+    public boolean bodyReadFailed() {
+        return bodyStream.failed;
+    }
+
+    public String body() throws IOException {
+        if (body == null) {
+            try (bodyStream) {
+                closed = true;
+                body = new String(bodyStream.readAllBytes(), charset);
+            } finally {
+                notifyClosed();
+            }
+        }
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (bodyStream) {
+            // a body that already broke off cannot be drained, and its connection is not reused anyway
+            if (!bodyStream.failed) {
+                bodyStream.transferTo(OutputStream.nullOutputStream());
+            }
+        } catch (ResponseTooLargeException ignored) {
+            // the connection is dropped instead of being returned to the pool
+        } finally {
+            notifyClosed();
+        }
+    }
+
+    private void notifyClosed() {
+        LongConsumer listener = closeListener;
+        closeListener = null;
+        if (listener != null) {
+            listener.accept(bodyStream.count);
+        }
+    }
+
+    static List<HttpCookie> parseSetCookies(List<String> headerValues) {
+        if (headerValues.isEmpty()) {
+            return List.of();
+        }
+        List<HttpCookie> setCookies = new ArrayList<>();
+        for (String header : headerValues) {
+            try {
+                setCookies.addAll(HttpCookie.parse(header));
+            } catch (IllegalArgumentException ignored) {
+                // malformed Set-Cookie headers are skipped, as browsers do
+            }
+        }
+        return Collections.unmodifiableList(setCookies);
+    }
+
+    private static Map<String, String> toMap(List<HttpCookie> setCookies) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (HttpCookie cookie : setCookies) {
+            cookies.put(cookie.getName(), cookie.getValue());
+        }
+        return cookies;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        private volatile boolean failed;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b >= 0) {
+                    count++;
+                }
+                return b;
+            } catch (IOException e) {
+                throw recordFailure(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    count += read;
+                }
+                return read;
+            } catch (IOException e) {
+                throw recordFailure(e);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                long skipped = super.skip(n);
+                count += skipped;
+                return skipped;
+            } catch (IOException e) {
+                throw recordFailure(e);
+            }
+        }
+
+        // an oversized body or our own interrupt is not the bank's fault
+        private IOException recordFailure(IOException e) {
+            if (!(e instanceof ResponseTooLargeException) && !Thread.currentThread().isInterrupted()) {
+                failed = true;
+            }
+            return e;
+        }
+    }
+}
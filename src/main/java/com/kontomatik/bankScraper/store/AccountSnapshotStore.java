@@ -0,0 +1,301 @@
+package com.kontomatik.bankScraper.store;
+
+import com.kontomatik.bankScraper.exceptions.SnapshotStoreException;
+import com.kontomatik.bankScraper.models.Account;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+@Component
+public class AccountSnapshotStore {
+    private static final String COMPACTING_SUFFIX = ".compacting";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration retention;
+    private final boolean fsync;
+    private final Clock clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+    private final Map<String, Long> latestByAccount = new HashMap<>();
+    private Segment active;
+    private volatile boolean opened;
+
+    @Autowired
+    public AccountSnapshotStore(@Value("${store.directory:data/snapshots}") String directory,
+                                @Value("${store.segment.maxBytes:16777216}") int segmentSize,
+                                @Value("${store.retention.days:365}") int retentionDays,
+                                @Value("${store.fsync:true}") boolean fsync) {
+        this(Path.of(directory), segmentSize, Duration.ofDays(retentionDays), fsync, Clock.systemUTC());
+    }
+
+    AccountSnapshotStore(Path directory, int segmentSize, Duration retention, boolean fsync, Clock clock) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+        this.fsync = fsync;
+        this.clock = clock;
+    }
+
+    // every record is sized up front, so an oversized one rejects the whole append before anything is written
+    public void append(String customer, List<Account> accounts) {
+        long scrapedAt = clock.millis();
+        List<byte[][]> records = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            byte[][] fields = SnapshotRecords.fields(customer, account);
+            if (recordBytes(fields) > segmentSize) {
+                throw new SnapshotStoreException("Record for account " + account.accountNumber() + " exceeds segment size");
+            }
+            records.add(fields);
+        }
+        ensureOpen();
+        lock.writeLock().lock();
+        try {
+            int flushFrom = active.end;
+            for (int i = 0; i < accounts.size(); i++) {
+                Account account = accounts.get(i);
+                byte[][] fields = records.get(i);
+                int recordBytes = recordBytes(fields);
+                if (active.end + recordBytes > active.capacity()) {
+                    flush(flushFrom);
+                    roll();
+                    flushFrom = 0;
+                }
+                int offset = active.end;
+                active.end += SnapshotRecords.write(active.buffer, offset, scrapedAt, account, fields);
+                latestByAccount.put(account.accountNumber(), active.location(offset));
+            }
+            flush(flushFrom);
+        } catch (IOException e) {
+            throw new SnapshotStoreException("Failed to append snapshot for " + customer, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<StoredAccount> latest(String accountNumber) {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            Long location = latestByAccount.get(accountNumber);
+            if (location == null) {
+                return Optional.empty();
+            }
+            Segment segment = segments.get(Segment.segmentId(location));
+            return Optional.of(SnapshotRecords.read(segment.buffer, Segment.offset(location)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<StoredAccount> history(String accountNumber) {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            List<StoredAccount> history = new ArrayList<>();
+            for (Segment segment : segments.values()) {
+                for (int offset = 0; offset < segment.end; offset += SnapshotRecords.validate(segment.buffer, offset, segment.end)) {
+                    if (accountNumber.equals(SnapshotRecords.accountNumber(segment.buffer, offset))) {
+                        history.add(SnapshotRecords.read(segment.buffer, offset));
+                    }
+                }
+            }
+            return history;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int accountCount() {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            return latestByAccount.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // drops records older than the retention period from sealed segments, always keeping the latest per account
+    public long compact() {
+        ensureOpen();
+        lock.writeLock().lock();
+        try {
+            return compactSealed();
+        } catch (IOException e) {
+            throw new SnapshotStoreException("Failed to compact snapshot store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!opened) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            active.buffer.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the directory is only touched, and the first segment mapped, once the store is actually used, not whenever the
+    // context starts
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!opened) {
+                recover();
+                compactSealed();
+                opened = true;
+            }
+        } catch (IOException e) {
+            throw new SnapshotStoreException("Failed to open snapshot store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long compactSealed() throws IOException {
+        long cutoff = clock.millis() - retention.toMillis();
+        long reclaimed = 0;
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment != active) {
+                reclaimed += compact(segment, cutoff);
+            }
+        }
+        return reclaimed;
+    }
+
+    private static int recordBytes(byte[][] fields) {
+        return SnapshotRecords.HEADER_BYTES + SnapshotRecords.payloadBytes(fields);
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.sorted().toList();
+        }
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(COMPACTING_SUFFIX)) {
+                Files.delete(file);
+            }
+        }
+        List<Path> segmentFiles = files.stream().filter(Segment::isSegmentFile).toList();
+        for (int i = 0; i < segmentFiles.size(); i++) {
+            Path file = segmentFiles.get(i);
+            boolean last = i == segmentFiles.size() - 1;
+            Segment segment = Segment.open(file, last && Files.size(file) == segmentSize);
+            segments.put(segment.id, segment);
+            scan(segment);
+        }
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (last != null && last.writable) {
+            active = last;
+        } else {
+            roll();
+        }
+    }
+
+    private void scan(Segment segment) {
+        int limit = segment.capacity();
+        int offset = 0;
+        int recordBytes;
+        while ((recordBytes = SnapshotRecords.validate(segment.buffer, offset, limit)) > 0) {
+            latestByAccount.put(SnapshotRecords.accountNumber(segment.buffer, offset), segment.location(offset));
+            offset += recordBytes;
+        }
+        segment.end = offset;
+        if (recordBytes < 0 && segment.writable) {
+            // a torn write from a crash; wipe it so the next append starts from clean space
+            for (int i = offset; i < limit; i++) {
+                segment.buffer.put(i, (byte) 0);
+            }
+            segment.buffer.force();
+        }
+    }
+
+    private void roll() throws IOException {
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        active = Segment.create(directory, id, segmentSize);
+        segments.put(id, active);
+    }
+
+    private void flush(int from) {
+        if (fsync && active.end > from) {
+            active.buffer.force(from, active.end - from);
+        }
+    }
+
+    private long compact(Segment segment, long cutoff) throws IOException {
+        List<Integer> survivors = new ArrayList<>();
+        int recordCount = 0;
+        for (int offset = 0; offset < segment.end; offset += SnapshotRecords.validate(segment.buffer, offset, segment.end)) {
+            recordCount++;
+            Long latest = latestByAccount.get(SnapshotRecords.accountNumber(segment.buffer, offset));
+            if (latest != null && latest == segment.location(offset) || SnapshotRecords.scrapedAtMillis(segment.buffer, offset) >= cutoff) {
+                survivors.add(offset);
+            }
+        }
+        if (survivors.size() == recordCount) {
+            return 0;
+        }
+        long before = Files.size(segment.path);
+        if (survivors.isEmpty()) {
+            segments.remove(segment.id);
+            Files.delete(segment.path);
+            return before;
+        }
+        Path compacting = segment.path.resolveSibling(segment.path.getFileName() + COMPACTING_SUFFIX);
+        Map<Integer, Integer> relocated = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(compacting, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int position = 0;
+            for (int offset : survivors) {
+                int recordBytes = SnapshotRecords.validate(segment.buffer, offset, segment.end);
+                ByteBuffer record = segment.buffer.slice(offset, recordBytes);
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                relocated.put(offset, position);
+                position += recordBytes;
+            }
+            channel.force(true);
+        }
+        Files.move(compacting, segment.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Segment compacted = Segment.open(segment.path, false);
+        compacted.end = compacted.capacity();
+        segments.put(compacted.id, compacted);
+        latestByAccount.replaceAll((accountNumber, location) -> Segment.segmentId(location) == segment.id
+                ? segment.location(relocated.get(Segment.offset(location)))
+                : location);
+        return before - compacted.capacity();
+    }
+}
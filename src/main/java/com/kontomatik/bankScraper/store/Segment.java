@@ -0,0 +1,73 @@
+package com.kontomatik.bankScraper.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class Segment {
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    final int id;
+    final Path path;
+    final MappedByteBuffer buffer;
+    final boolean writable;
+    int end;
+
+    private Segment(int id, Path path, MappedByteBuffer buffer, boolean writable) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.writable = writable;
+    }
+
+    static Segment create(Path directory, int id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), true);
+        }
+    }
+
+    static Segment open(Path path, boolean writable) throws IOException {
+        StandardOpenOption[] options = writable
+                ? new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[]{StandardOpenOption.READ};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            return new Segment(idOf(path), path, channel.map(mode, 0, channel.size()), writable);
+        }
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    long location(int offset) {
+        return ((long) id << 32) | offset;
+    }
+
+    static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    static int offset(long location) {
+        return (int) location;
+    }
+
+    static boolean isSegmentFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static String fileName(int id) {
+        return PREFIX + "%010d".formatted(id) + SUFFIX;
+    }
+
+    static int idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
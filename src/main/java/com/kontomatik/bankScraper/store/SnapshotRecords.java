@@ -0,0 +1,144 @@
+package com.kontomatik.bankScraper.store;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+// [int payloadLength][int crc32c][long scrapedAt][str customer][str accountNumber][str name][int scale][bytes unscaled]
+// str/bytes are a short length followed by the bytes, with -1 standing for null; a zero length marks the end of a segment
+final class SnapshotRecords {
+    static final int HEADER_BYTES = 8;
+    private static final int NULL_LENGTH = -1;
+    private static final int NULL_SCALE = Integer.MIN_VALUE;
+
+    private SnapshotRecords() {
+    }
+
+    static byte[][] fields(String customer, Account account) {
+        BigDecimal balance = account.balance();
+        return new byte[][]{
+                utf8(customer),
+                utf8(account.accountNumber()),
+                utf8(account.name()),
+                balance == null ? null : balance.unscaledValue().toByteArray()
+        };
+    }
+
+    static int payloadBytes(byte[][] fields) {
+        int size = Long.BYTES + Integer.BYTES;
+        for (byte[] field : fields) {
+            size += Short.BYTES + (field == null ? 0 : field.length);
+        }
+        return size;
+    }
+
+    static int write(ByteBuffer buffer, int offset, long scrapedAtMillis, Account account, byte[][] fields) {
+        int payloadLength = payloadBytes(fields);
+        int position = offset + HEADER_BYTES;
+        buffer.putLong(position, scrapedAtMillis);
+        position += Long.BYTES;
+        position = putBytes(buffer, position, fields[0]);
+        position = putBytes(buffer, position, fields[1]);
+        position = putBytes(buffer, position, fields[2]);
+        buffer.putInt(position, account.balance() == null ? NULL_SCALE : account.balance().scale());
+        position += Integer.BYTES;
+        putBytes(buffer, position, fields[3]);
+        buffer.putInt(offset + Integer.BYTES, checksum(buffer, offset + HEADER_BYTES, payloadLength));
+        buffer.putInt(offset, payloadLength);
+        return HEADER_BYTES + payloadLength;
+    }
+
+    // length of the valid record at offset, 0 at the end of the data, -1 for a torn or corrupt record
+    static int validate(ByteBuffer buffer, int offset, int limit) {
+        if (offset + HEADER_BYTES > limit) {
+            return 0;
+        }
+        int payloadLength = buffer.getInt(offset);
+        if (payloadLength == 0) {
+            return 0;
+        }
+        if (payloadLength < 0 || payloadLength > limit - offset - HEADER_BYTES) {
+            return -1;
+        }
+        int expected = buffer.getInt(offset + Integer.BYTES);
+        return checksum(buffer, offset + HEADER_BYTES, payloadLength) == expected ? HEADER_BYTES + payloadLength : -1;
+    }
+
+    static StoredAccount read(ByteBuffer buffer, int offset) {
+        int position = offset + HEADER_BYTES;
+        long scrapedAt = buffer.getLong(position);
+        position += Long.BYTES;
+        byte[] customer = getBytes(buffer, position);
+        position += fieldBytes(customer);
+        byte[] accountNumber = getBytes(buffer, position);
+        position += fieldBytes(accountNumber);
+        byte[] name = getBytes(buffer, position);
+        position += fieldBytes(name);
+        int scale = buffer.getInt(position);
+        position += Integer.BYTES;
+        byte[] unscaled = getBytes(buffer, position);
+        BigDecimal balance = scale == NULL_SCALE || unscaled == null ? null : new BigDecimal(new BigInteger(unscaled), scale);
+        Account account = new Account(string(accountNumber), balance, string(name));
+        return new StoredAccount(string(customer), account, Instant.ofEpochMilli(scrapedAt));
+    }
+
+    static long scrapedAtMillis(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + HEADER_BYTES);
+    }
+
+    static String accountNumber(ByteBuffer buffer, int offset) {
+        int position = offset + HEADER_BYTES + Long.BYTES;
+        position += fieldBytes(getBytes(buffer, position));
+        return string(getBytes(buffer, position));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static int putBytes(ByteBuffer buffer, int position, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort(position, (short) NULL_LENGTH);
+            return position + Short.BYTES;
+        }
+        buffer.putShort(position, (short) bytes.length);
+        buffer.put(position + Short.BYTES, bytes);
+        return position + Short.BYTES + bytes.length;
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int position) {
+        int length = buffer.getShort(position);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + Short.BYTES, bytes);
+        return bytes;
+    }
+
+    private static int fieldBytes(byte[] field) {
+        return Short.BYTES + (field == null ? 0 : field.length);
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Field longer than " + Short.MAX_VALUE + " bytes");
+        }
+        return bytes;
+    }
+
+    private static String string(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,8 @@
+package com.kontomatik.bankScraper.store;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.time.Instant;
+
+public record StoredAccount(String customer, Account account, Instant scrapedAt) {
+}
@@ -0,0 +1,10 @@
+package com.kontomatik.bankScraper.timeseries;
+
+import java.time.Instant;
+
+public record BalanceBucket(Instant start, long open, long high, long low, long close, int count) {
+
+    BalanceBucket merge(long max, long min, long last, int points) {
+        return new BalanceBucket(start, open, Math.max(high, max), Math.min(low, min), last, count + points);
+    }
+}
@@ -0,0 +1,115 @@
+package com.kontomatik.bankScraper.timeseries;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// a library class: nothing in the application feeds it, the embedding code records scrapes and queries trends
+public class BalanceTimeSeries {
+    private static final int FORMAT_MAGIC = 0x42545331;
+
+    private final int scale;
+    private final int blockSize;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    public BalanceTimeSeries(int scale, int blockSize) {
+        this.scale = scale;
+        this.blockSize = blockSize;
+    }
+
+    public void record(Instant at, List<Account> accounts) {
+        for (Account account : accounts) {
+            if (account.balance() != null) {
+                record(account.accountNumber(), at, account.balance());
+            }
+        }
+    }
+
+    public void record(String accountNumber, Instant at, BigDecimal balance) {
+        series.computeIfAbsent(accountNumber, ignored -> new Series(blockSize))
+                .append(at.toEpochMilli(), toMinorUnits(balance));
+    }
+
+    public void scan(String accountNumber, Instant from, Instant to, PointConsumer consumer) {
+        Series accountSeries = series.get(accountNumber);
+        if (accountSeries != null) {
+            accountSeries.scan(from.toEpochMilli(), to.toEpochMilli(), consumer);
+        }
+    }
+
+    public List<BalanceBucket> downsample(String accountNumber, Instant from, Instant to, Duration bucket) {
+        Series accountSeries = series.get(accountNumber);
+        if (accountSeries == null) {
+            return List.of();
+        }
+        return accountSeries.downsample(from.toEpochMilli(), to.toEpochMilli(), bucket.toMillis());
+    }
+
+    public int pointCount(String accountNumber) {
+        Series accountSeries = series.get(accountNumber);
+        return accountSeries == null ? 0 : accountSeries.pointCount();
+    }
+
+    public long encodedBytes() {
+        return series.values().stream().mapToLong(Series::encodedBytes).sum();
+    }
+
+    public long toMinorUnits(BigDecimal balance) {
+        try {
+            return balance.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Balance " + balance + " does not fit " + scale + " decimal places", e);
+        }
+    }
+
+    public BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    public void save(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        Map<String, Series> snapshot = Map.copyOf(series);
+        out.writeInt(FORMAT_MAGIC);
+        out.writeInt(scale);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Series> entry : snapshot.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+        out.flush();
+    }
+
+    public void load(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != FORMAT_MAGIC) {
+            throw new IOException("Not a balance time-series file");
+        }
+        int storedScale = in.readInt();
+        if (storedScale != scale) {
+            throw new IOException("Stored balances use scale " + storedScale + " but " + scale + " is configured");
+        }
+        int seriesCount = in.readInt();
+        series.clear();
+        for (int i = 0; i < seriesCount; i++) {
+            Series accountSeries = new Series(blockSize);
+            series.put(in.readUTF(), accountSeries);
+            accountSeries.readFrom(in);
+        }
+    }
+
+    @FunctionalInterface
+    public interface PointConsumer {
+        void accept(long epochMillis, long minorUnits);
+    }
+}
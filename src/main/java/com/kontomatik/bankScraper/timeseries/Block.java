@@ -0,0 +1,110 @@
+package com.kontomatik.bankScraper.timeseries;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// timestamps are stored as delta-of-delta and values as deltas, both zigzag varints, in separate columns
+final class Block {
+    final int count;
+    final long firstTimestamp;
+    final long lastTimestamp;
+    final long firstValue;
+    final long lastValue;
+    final long minValue;
+    final long maxValue;
+    private final byte[] timestamps;
+    private final byte[] values;
+
+    private Block(int count, long firstTimestamp, long lastTimestamp, long firstValue, long lastValue,
+                  long minValue, long maxValue, byte[] timestamps, byte[] values) {
+        this.count = count;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.firstValue = firstValue;
+        this.lastValue = lastValue;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.timestamps = timestamps;
+        this.values = values;
+    }
+
+    static Block encode(long[] timestamps, long[] values, int count) {
+        ByteArrayOutputStream timestampColumn = new ByteArrayOutputStream(count);
+        ByteArrayOutputStream valueColumn = new ByteArrayOutputStream(count);
+        long min = values[0];
+        long max = values[0];
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = timestamps[i] - timestamps[i - 1];
+            VarInts.writeSigned(timestampColumn, delta - previousDelta);
+            previousDelta = delta;
+            VarInts.writeSigned(valueColumn, values[i] - values[i - 1]);
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        return new Block(count, timestamps[0], timestamps[count - 1], values[0], values[count - 1], min, max,
+                timestampColumn.toByteArray(), valueColumn.toByteArray());
+    }
+
+    boolean overlaps(long from, long to) {
+        return firstTimestamp < to && lastTimestamp >= from;
+    }
+
+    boolean within(long from, long to) {
+        return firstTimestamp >= from && lastTimestamp < to;
+    }
+
+    void scan(long from, long to, BalanceTimeSeries.PointConsumer consumer) {
+        VarInts.Reader timestampReader = new VarInts.Reader(timestamps);
+        VarInts.Reader valueReader = new VarInts.Reader(values);
+        long timestamp = firstTimestamp;
+        long value = firstValue;
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += timestampReader.readSigned();
+                timestamp += delta;
+                value += valueReader.readSigned();
+            }
+            if (timestamp >= to) {
+                return;
+            }
+            if (timestamp >= from) {
+                consumer.accept(timestamp, value);
+            }
+        }
+    }
+
+    int encodedBytes() {
+        return timestamps.length + values.length + 7 * Long.BYTES;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(count);
+        out.writeLong(firstTimestamp);
+        out.writeLong(lastTimestamp);
+        out.writeLong(firstValue);
+        out.writeLong(lastValue);
+        out.writeLong(minValue);
+        out.writeLong(maxValue);
+        out.writeInt(timestamps.length);
+        out.write(timestamps);
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    static Block readFrom(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        long firstTimestamp = in.readLong();
+        long lastTimestamp = in.readLong();
+        long firstValue = in.readLong();
+        long lastValue = in.readLong();
+        long minValue = in.readLong();
+        long maxValue = in.readLong();
+        byte[] timestamps = in.readNBytes(in.readInt());
+        byte[] values = in.readNBytes(in.readInt());
+        return new Block(count, firstTimestamp, lastTimestamp, firstValue, lastValue, minValue, maxValue, timestamps, values);
+    }
+}
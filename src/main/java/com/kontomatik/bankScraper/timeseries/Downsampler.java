@@ -0,0 +1,52 @@
+package com.kontomatik.bankScraper.timeseries;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+final class Downsampler implements BalanceTimeSeries.PointConsumer {
+    private final long bucketMillis;
+    private final List<BalanceBucket> buckets = new ArrayList<>();
+    private BalanceBucket current;
+
+    Downsampler(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    @Override
+    public void accept(long epochMillis, long minorUnits) {
+        add(epochMillis, minorUnits, minorUnits, minorUnits, minorUnits, 1);
+    }
+
+    boolean sameBucket(long first, long last) {
+        return bucketStart(first) == bucketStart(last);
+    }
+
+    void addSummary(Block block) {
+        add(block.firstTimestamp, block.firstValue, block.maxValue, block.minValue, block.lastValue, block.count);
+    }
+
+    List<BalanceBucket> finish() {
+        if (current != null) {
+            buckets.add(current);
+            current = null;
+        }
+        return buckets;
+    }
+
+    private void add(long timestamp, long first, long max, long min, long last, int points) {
+        long start = bucketStart(timestamp);
+        if (current != null && current.start().toEpochMilli() == start) {
+            current = current.merge(max, min, last, points);
+            return;
+        }
+        if (current != null) {
+            buckets.add(current);
+        }
+        current = new BalanceBucket(Instant.ofEpochMilli(start), first, max, min, last, points);
+    }
+
+    private long bucketStart(long timestamp) {
+        return Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+    }
+}
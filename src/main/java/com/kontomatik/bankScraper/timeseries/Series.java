@@ -0,0 +1,128 @@
+package com.kontomatik.bankScraper.timeseries;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class Series {
+    private static final int INITIAL_HEAD_CAPACITY = 4;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final int blockSize;
+    // grown on demand, so an account with a handful of points does not pay for a whole block of raw longs
+    private long[] headTimestamps = new long[0];
+    private long[] headValues = new long[0];
+    private int headCount;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private int pointCount;
+
+    Series(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    synchronized void append(long timestamp, long value) {
+        if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Balance at " + timestamp + " is older than the last point at " + lastTimestamp);
+        }
+        appendToHead(timestamp, value);
+        pointCount++;
+        lastTimestamp = timestamp;
+    }
+
+    synchronized void scan(long from, long to, BalanceTimeSeries.PointConsumer consumer) {
+        for (Block block : blocks) {
+            if (block.overlaps(from, to)) {
+                block.scan(from, to, consumer);
+            }
+        }
+        scanHead(from, to, consumer);
+    }
+
+    synchronized List<BalanceBucket> downsample(long from, long to, long bucketMillis) {
+        Downsampler downsampler = new Downsampler(bucketMillis);
+        for (Block block : blocks) {
+            if (!block.overlaps(from, to)) {
+                continue;
+            }
+            if (block.within(from, to) && downsampler.sameBucket(block.firstTimestamp, block.lastTimestamp)) {
+                downsampler.addSummary(block);
+            } else {
+                block.scan(from, to, downsampler);
+            }
+        }
+        scanHead(from, to, downsampler);
+        return downsampler.finish();
+    }
+
+    synchronized int pointCount() {
+        return pointCount;
+    }
+
+    synchronized long encodedBytes() {
+        long bytes = (long) headCount * 2 * Long.BYTES;
+        for (Block block : blocks) {
+            bytes += block.encodedBytes();
+        }
+        return bytes;
+    }
+
+    synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(blocks.size() + (headCount > 0 ? 1 : 0));
+        for (Block block : blocks) {
+            block.writeTo(out);
+        }
+        if (headCount > 0) {
+            Block.encode(headTimestamps, headValues, headCount).writeTo(out);
+        }
+    }
+
+    // the head is saved as a block of its own; it is reopened on load, so that each save/load cycle does not leave
+    // another short block behind
+    synchronized void readFrom(DataInputStream in) throws IOException {
+        int blockCount = in.readInt();
+        for (int i = 0; i < blockCount; i++) {
+            Block block = Block.readFrom(in);
+            pointCount += block.count;
+            lastTimestamp = block.lastTimestamp;
+            if (i == blockCount - 1 && block.count < blockSize) {
+                block.scan(Long.MIN_VALUE, Long.MAX_VALUE, this::appendToHead);
+            } else {
+                blocks.add(block);
+            }
+        }
+    }
+
+    synchronized int blockCount() {
+        return blocks.size();
+    }
+
+    synchronized int headCapacity() {
+        return headTimestamps.length;
+    }
+
+    private void appendToHead(long timestamp, long value) {
+        if (headCount == headTimestamps.length) {
+            int capacity = Math.min(blockSize, Math.max(INITIAL_HEAD_CAPACITY, headCount * 2));
+            headTimestamps = Arrays.copyOf(headTimestamps, capacity);
+            headValues = Arrays.copyOf(headValues, capacity);
+        }
+        headTimestamps[headCount] = timestamp;
+        headValues[headCount] = value;
+        headCount++;
+        if (headCount == blockSize) {
+            blocks.add(Block.encode(headTimestamps, headValues, headCount));
+            headCount = 0;
+        }
+    }
+
+    private void scanHead(long from, long to, BalanceTimeSeries.PointConsumer consumer) {
+        for (int i = 0; i < headCount && headTimestamps[i] < to; i++) {
+            if (headTimestamps[i] >= from) {
+                consumer.accept(headTimestamps[i], headValues[i]);
+            }
+        }
+    }
+}
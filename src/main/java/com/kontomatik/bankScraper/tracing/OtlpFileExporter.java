@@ -0,0 +1,36 @@
+package com.kontomatik.bankScraper.tracing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// one ExportTraceServiceRequest per line, the layout the collector's otlpjsonfile receiver reads back
+final class OtlpFileExporter implements SpanExporter {
+    private final Writer out;
+    private final String serviceName;
+
+    OtlpFileExporter(Path file, String serviceName) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.serviceName = serviceName;
+    }
+
+    @Override
+    public void export(List<SpanData> spans) throws IOException {
+        OtlpJson.write(out, serviceName, spans);
+        out.write('\n');
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,50 @@
+package com.kontomatik.bankScraper.tracing;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+// OTLP/HTTP with the JSON encoding, e.g. to a local collector on :4318
+final class OtlpHttpExporter implements SpanExporter {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final URI endpoint;
+    private final String serviceName;
+
+    OtlpHttpExporter(String endpoint, String serviceName) {
+        this.endpoint = URI.create(endpoint);
+        this.serviceName = serviceName;
+    }
+
+    @Override
+    public void export(List<SpanData> spans) throws IOException {
+        StringWriter body = new StringWriter();
+        OtlpJson.write(body, serviceName, spans);
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("Collector at " + endpoint + " answered " + response.statusCode());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting spans to " + endpoint);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
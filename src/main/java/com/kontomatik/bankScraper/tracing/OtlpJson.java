@@ -0,0 +1,74 @@
+package com.kontomatik.bankScraper.tracing;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+// ExportTraceServiceRequest in the OTLP/JSON mapping: hex ids, 64-bit integers as strings, enums as numbers
+final class OtlpJson {
+    private static final String SCOPE_NAME = "com.kontomatik.bankScraper";
+    private static final int STATUS_OK = 1;
+    private static final int STATUS_ERROR = 2;
+
+    private OtlpJson() {
+    }
+
+    static void write(Writer out, String serviceName, List<SpanData> spans) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("resourceSpans").beginArray().beginObject();
+        json.name("resource").beginObject().name("attributes").beginArray();
+        attribute(json, "service.name", serviceName);
+        json.endArray().endObject();
+        json.name("scopeSpans").beginArray().beginObject();
+        json.name("scope").beginObject().name("name").value(SCOPE_NAME).endObject();
+        json.name("spans").beginArray();
+        for (SpanData span : spans) {
+            span(json, span);
+        }
+        json.endArray().endObject().endArray();
+        json.endObject().endArray().endObject();
+        json.flush();
+    }
+
+    private static void span(JsonWriter json, SpanData span) throws IOException {
+        json.beginObject();
+        json.name("traceId").value(span.traceId());
+        json.name("spanId").value(span.spanId());
+        if (span.parentSpanId() != null) {
+            json.name("parentSpanId").value(span.parentSpanId());
+        }
+        json.name("name").value(span.name());
+        json.name("kind").value(span.kind().otlpValue());
+        json.name("startTimeUnixNano").value(Long.toString(span.startEpochNanos()));
+        json.name("endTimeUnixNano").value(Long.toString(span.endEpochNanos()));
+        json.name("attributes").beginArray();
+        for (Map.Entry<String, Object> attribute : span.attributes().entrySet()) {
+            attribute(json, attribute.getKey(), attribute.getValue());
+        }
+        json.endArray();
+        json.name("status").beginObject();
+        if (span.isError()) {
+            json.name("code").value(STATUS_ERROR);
+            json.name("message").value(span.errorMessage());
+        } else {
+            json.name("code").value(STATUS_OK);
+        }
+        json.endObject();
+        json.endObject();
+    }
+
+    private static void attribute(JsonWriter json, String key, Object value) throws IOException {
+        json.beginObject().name("key").value(key).name("value").beginObject();
+        switch (value) {
+            case Boolean bool -> json.name("boolValue").value(bool);
+            case Integer number -> json.name("intValue").value(Long.toString(number));
+            case Long number -> json.name("intValue").value(Long.toString(number));
+            case Number number -> json.name("doubleValue").value(number.doubleValue());
+            default -> json.name("stringValue").value(String.valueOf(value));
+        }
+        json.endObject().endObject();
+    }
+}
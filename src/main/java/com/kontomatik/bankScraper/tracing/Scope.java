@@ -0,0 +1,7 @@
+package com.kontomatik.bankScraper.tracing;
+
+@FunctionalInterface
+public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+}
@@ -0,0 +1,70 @@
+package com.kontomatik.bankScraper.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class Span {
+    private final Tracer tracer;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final SpanKind kind;
+    private final long startEpochNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private String errorMessage;
+    private boolean ended;
+
+    Span(Tracer tracer, String traceId, String spanId, String parentSpanId, String name, SpanKind kind, long startEpochNanos) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.startEpochNanos = startEpochNanos;
+    }
+
+    public String traceId() {
+        return traceId;
+    }
+
+    public String spanId() {
+        return spanId;
+    }
+
+    // values are kept as given; the exporter maps String, Boolean, integral and floating point numbers to OTLP types
+    public synchronized Span setAttribute(String key, Object value) {
+        if (!ended && value != null) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    public synchronized Span recordError(String message) {
+        if (!ended) {
+            errorMessage = message == null ? "" : message;
+        }
+        return this;
+    }
+
+    public Span recordError(Throwable error) {
+        setAttribute("exception.type", error.getClass().getName());
+        return recordError(error.getMessage());
+    }
+
+    // only the first call counts, so a span may be ended from both a close hook and an error path
+    public void end() {
+        SpanData data;
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            data = new SpanData(traceId, spanId, parentSpanId, name, kind, startEpochNanos, tracer.nowEpochNanos(),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(attributes)), errorMessage);
+        }
+        tracer.enqueue(data);
+    }
+}
@@ -0,0 +1,18 @@
+package com.kontomatik.bankScraper.tracing;
+
+import java.util.Map;
+
+public record SpanData(String traceId,
+                       String spanId,
+                       String parentSpanId,
+                       String name,
+                       SpanKind kind,
+                       long startEpochNanos,
+                       long endEpochNanos,
+                       Map<String, Object> attributes,
+                       String errorMessage) {
+
+    public boolean isError() {
+        return errorMessage != null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.kontomatik.bankScraper.tracing;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface SpanExporter {
+    SpanExporter NONE = spans -> {
+    };
+
+    void export(List<SpanData> spans) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
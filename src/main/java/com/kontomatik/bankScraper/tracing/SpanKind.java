@@ -0,0 +1,18 @@
+package com.kontomatik.bankScraper.tracing;
+
+// numbered as in the OTLP protobuf enum, which is what the JSON encoding carries
+public enum SpanKind {
+    INTERNAL(1),
+    SERVER(2),
+    CLIENT(3);
+
+    private final int otlpValue;
+
+    SpanKind(int otlpValue) {
+        this.otlpValue = otlpValue;
+    }
+
+    int otlpValue() {
+        return otlpValue;
+    }
+}
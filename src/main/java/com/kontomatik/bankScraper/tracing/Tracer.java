@@ -0,0 +1,192 @@
+package com.kontomatik.bankScraper.tracing;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// the current span lives in a thread local; work handed to another thread carries it over through wrap() or activate().
+// Ended spans only go into a bounded queue, a single exporter thread batches them out, and a full queue drops spans
+// rather than slowing down a scrape
+@Component
+public class Tracer {
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final SpanExporter exporter;
+    private final BlockingQueue<SpanData> queue;
+    private final int batchSize;
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private final long epochOffsetNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+    private final AtomicLong droppedSpans = new AtomicLong();
+    private final Thread exporterThread;
+    private volatile boolean closed;
+
+    @Autowired
+    public Tracer(@Value("${tracing.exporter:none}") String exporter,
+                  @Value("${tracing.file:data/traces/spans.jsonl}") String file,
+                  @Value("${tracing.otlp.endpoint:http://localhost:4318/v1/traces}") String endpoint,
+                  @Value("${spring.application.name:bankScraper}") String serviceName,
+                  @Value("${tracing.queueCapacity:8192}") int queueCapacity,
+                  @Value("${tracing.batchSize:512}") int batchSize) throws IOException {
+        this(exporter(exporter, file, endpoint, serviceName), queueCapacity, batchSize);
+    }
+
+    Tracer(SpanExporter exporter, int queueCapacity, int batchSize) {
+        this.exporter = exporter;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.exporterThread = exporter == SpanExporter.NONE ? null : Thread.ofPlatform()
+                .name("span-exporter")
+                .daemon()
+                .start(this::drain);
+    }
+
+    public static Tracer discarding() {
+        return new Tracer(SpanExporter.NONE, 1, 1);
+    }
+
+    // a child of the current span, or the root of a new trace when nothing is current
+    public Span startSpan(String name, SpanKind kind) {
+        Span parent = current.get();
+        return parent == null
+                ? new Span(this, randomHex(16), randomHex(8), null, name, kind, nowEpochNanos())
+                : new Span(this, parent.traceId(), randomHex(8), parent.spanId(), name, kind, nowEpochNanos());
+    }
+
+    public Span startTrace(String name, SpanKind kind) {
+        return new Span(this, randomHex(16), randomHex(8), null, name, kind, nowEpochNanos());
+    }
+
+    public Span current() {
+        return current.get();
+    }
+
+    public Scope activate(Span span) {
+        Span previous = current.get();
+        current.set(span);
+        return previous == null ? current::remove : () -> current.set(previous);
+    }
+
+    public Runnable wrap(Runnable task) {
+        Span parent = current.get();
+        return () -> {
+            try (Scope ignored = activate(parent)) {
+                task.run();
+            }
+        };
+    }
+
+    public <T> Callable<T> wrap(Callable<T> task) {
+        Span parent = current.get();
+        return () -> {
+            try (Scope ignored = activate(parent)) {
+                return task.call();
+            }
+        };
+    }
+
+    public long droppedSpans() {
+        return droppedSpans.get();
+    }
+
+    // user names must not end up in a trace file, but spans of the same user should still be easy to find
+    public static String pseudonymize(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (exporterThread != null) {
+            try {
+                exporterThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exporter.close();
+    }
+
+    long nowEpochNanos() {
+        return System.nanoTime() + epochOffsetNanos;
+    }
+
+    void enqueue(SpanData span) {
+        if (exporterThread == null) {
+            return;
+        }
+        if (closed || !queue.offer(span)) {
+            droppedSpans.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<SpanData> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                SpanData first = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                exporter.export(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                // a collector that is down loses this batch, never the scrape
+                droppedSpans.addAndGet(batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    private static SpanExporter exporter(String exporter, String file, String endpoint, String serviceName) throws IOException {
+        return switch (exporter) {
+            case "file" -> new OtlpFileExporter(Path.of(file), serviceName);
+            case "otlp" -> new OtlpHttpExporter(endpoint, serviceName);
+            case "none" -> SpanExporter.NONE;
+            default -> throw new IllegalArgumentException("Unknown tracing.exporter " + exporter + ", use file, otlp or none");
+        };
+    }
+
+    private static String randomHex(int bytes) {
+        byte[] id = new byte[bytes];
+        do {
+            ThreadLocalRandom.current().nextBytes(id);
+        } while (isZero(id));
+        return HexFormat.of().formatHex(id);
+    }
+
+    private static boolean isZero(byte[] id) {
+        for (byte b : id) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package com.kontomatik.bankScraper.ui;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+public enum AccountFormat {
+    TEXT {
+        @Override
+        void begin(Writer out) throws IOException {
+            out.write('\n');
+        }
+
+        @Override
+        void write(Writer out, Account account) throws IOException {
+            out.write("Account Name: ");
+            out.write(String.valueOf(account.name()));
+            out.write("\nAccount Number: ");
+            out.write(String.valueOf(account.accountNumber()));
+            out.write("\nBalance: ");
+            out.write(String.valueOf(account.balance()));
+            out.write("\n\n");
+        }
+    },
+    CSV {
+        @Override
+        void begin(Writer out) throws IOException {
+            out.write("accountNumber,name,balance\n");
+        }
+
+        @Override
+        void write(Writer out, Account account) throws IOException {
+            writeCsvField(out, account.accountNumber());
+            out.write(',');
+            writeCsvField(out, account.name());
+            out.write(',');
+            if (account.balance() != null) {
+                out.write(account.balance().toPlainString());
+            }
+            out.write('\n');
+        }
+    },
+    NDJSON {
+        @Override
+        void write(Writer out, Account account) throws IOException {
+            out.write("{\"accountNumber\":");
+            writeJsonString(out, account.accountNumber());
+            out.write(",\"name\":");
+            writeJsonString(out, account.name());
+            out.write(",\"balance\":");
+            BigDecimal balance = account.balance();
+            out.write(balance == null ? "null" : balance.toPlainString());
+            out.write("}\n");
+        }
+    };
+
+    void begin(Writer out) throws IOException {
+    }
+
+    abstract void write(Writer out, Account account) throws IOException;
+
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
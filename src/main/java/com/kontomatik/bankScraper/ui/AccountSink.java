@@ -0,0 +1,11 @@
+package com.kontomatik.bankScraper.ui;
+
+import com.kontomatik.bankScraper.models.Account;
+
+public interface AccountSink extends AutoCloseable {
+    void write(Account account);
+
+    // waits until everything written so far has reached the underlying stream
+    @Override
+    void close();
+}
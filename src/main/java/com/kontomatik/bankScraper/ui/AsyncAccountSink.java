@@ -0,0 +1,140 @@
+package com.kontomatik.bankScraper.ui;
+
+import com.kontomatik.bankScraper.models.Account;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// callers only enqueue; a single writer thread formats into the buffered writer and flushes whenever it catches up,
+// and a full queue blocks the callers so a slow terminal or disk pushes back instead of piling up memory
+final class AsyncAccountSink implements AccountSink {
+    private static final Account END = new Account(null, null, null);
+
+    private final BlockingQueue<Account> queue;
+    private final Writer out;
+    private final AccountFormat format;
+    private final Thread writerThread;
+    // producers share the read lock, close() takes the write lock, so no account can be queued behind END
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private volatile IOException failure;
+    private boolean closed;
+
+    AsyncAccountSink(Writer out, AccountFormat format, int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.out = out;
+        this.format = format;
+        this.writerThread = Thread.ofPlatform()
+                .name("account-sink-" + format.name().toLowerCase(Locale.ROOT))
+                .daemon()
+                .start(this::drain);
+    }
+
+    @Override
+    public void write(Account account) {
+        lifecycle.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Account sink is closed");
+            }
+            rethrowFailure();
+            queue.put(account);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the account sink"));
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lifecycle.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(END);
+                writerThread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        rethrowFailure();
+    }
+
+    // the header goes out with the first account rather than when the sink opens, so a sink opened before a scrape
+    // does not print it ahead of the 2FA prompt
+    private void drain() {
+        boolean ended = false;
+        boolean begun = false;
+        try (out) {
+            while (true) {
+                Account account = queue.poll();
+                if (account == null) {
+                    out.flush();
+                    account = queue.take();
+                }
+                if (!begun) {
+                    format.begin(out);
+                    begun = true;
+                }
+                if (account == END) {
+                    ended = true;
+                    break;
+                }
+                format.write(out, account);
+            }
+        } catch (IOException e) {
+            failure = e;
+            if (!ended) {
+                discardUntilEnd();
+            }
+        } catch (RuntimeException e) {
+            // a broken format or stream must not kill the writer silently, or producers and close() wait forever
+            failure = new IOException("Failed to format accounts: " + e.getMessage(), e);
+            if (!ended) {
+                discardUntilEnd();
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Account sink writer was interrupted");
+            discardUntilEnd();
+        }
+    }
+
+    // keeps the queue moving after a failure so callers blocked on a full queue get to see it
+    private void discardUntilEnd() {
+        while (true) {
+            try {
+                if (queue.take() == END) {
+                    return;
+                }
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    private void rethrowFailure() {
+        IOException error = failure;
+        if (error != null) {
+            throw new UncheckedIOException("Failed to write accounts", error);
+        }
+    }
+}
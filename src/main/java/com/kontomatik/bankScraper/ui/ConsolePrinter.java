@@ -3,25 +3,25 @@ package com.kontomatik.bankScraper.ui;
 import com.kontomatik.bankScraper.models.Account;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Component
 public class ConsolePrinter {
 
-    public void printAccountGroups(List<Account> accounts) {
-        System.out.println(formatAccountGroups(accounts));
-    }
-
     public String formatAccountGroups(List<Account> accounts) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n");
-        for (Account account : accounts) {
-            sb.append("Account Name: ").append(account.name()).append("\n");
-            sb.append("Account Number: ").append(account.accountNumber()).append("\n");
-            sb.append("Balance: ").append(account.balance()).append("\n");
-            sb.append("\n");
+        StringWriter report = new StringWriter();
+        try {
+            AccountFormat.TEXT.begin(report);
+            for (Account account : accounts) {
+                AccountFormat.TEXT.write(report, account);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return sb.toString();
+        return report.toString();
     }
 
     public void notifyTwoFactorAuthStart() {
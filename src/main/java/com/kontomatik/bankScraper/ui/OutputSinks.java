@@ -0,0 +1,64 @@
+package com.kontomatik.bankScraper.ui;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+@Component
+public class OutputSinks {
+    private final AccountFormat format;
+    private final int queueCapacity;
+    private final int bufferBytes;
+
+    public OutputSinks(@Value("${output.format:text}") String format,
+                       @Value("${output.queueCapacity:1024}") int queueCapacity,
+                       @Value("${output.bufferBytes:65536}") int bufferBytes) {
+        this.format = AccountFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        this.queueCapacity = queueCapacity;
+        this.bufferBytes = bufferBytes;
+    }
+
+    public AccountSink console() {
+        PrintStream console = System.out;
+        return open(keepOpen(console), console.charset(), format);
+    }
+
+    public AccountSink open(Path file, AccountFormat format) throws IOException {
+        return open(Files.newOutputStream(file), StandardCharsets.UTF_8, format);
+    }
+
+    public AccountSink open(OutputStream target, AccountFormat format) {
+        return open(target, StandardCharsets.UTF_8, format);
+    }
+
+    private AccountSink open(OutputStream target, Charset charset, AccountFormat format) {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(target, charset), bufferBytes);
+        return new AsyncAccountSink(writer, format, queueCapacity);
+    }
+
+    // closing a console sink flushes it but must not close System.out
+    private static OutputStream keepOpen(OutputStream target) {
+        return new FilterOutputStream(target) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.AccountView;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountsDecoderTest {
+
+    @Test
+    void shouldDecodeBalancesToMinorUnitsAndCurrency() throws IOException, ResponseHandlingException {
+        // given
+        String json = """
+                {"accountsGroups":[{"accounts":[
+                    {"accountNumber":"1","balance":1119.15,"currency":"PLN","name":"eKonto"},
+                    {"accountNumber":"2","balance":-0.5,"currency":"EUR","name":"Karta"},
+                    {"accountNumber":"3","balance":12,"currency":"JPY","name":"Yen"}
+                ]}]}
+                """;
+        List<String> decoded = new ArrayList<>();
+
+        // when
+        AccountsDecoder.decode(new StringReader(json), view ->
+                decoded.add(view.accountNumber() + " " + view.minorUnits() + " " + view.currency()));
+
+        // then
+        assertEquals(List.of("1 111915 PLN", "2 -50 EUR", "3 12 JPY"), decoded);
+    }
+
+    @Test
+    void shouldProduceSameAccountsAsReflectiveBinding() throws IOException, ResponseHandlingException {
+        // given
+        String json = """
+                {
+                    "summary":{"balance":1.00,"nested":[{"a":[1,2,{"b":"}"}]}]},
+                    "accountsGroups":[
+                        {"header":"Personal","accounts":[
+                            {"customName":"","accountNumber":"11 \\"22\\"","balance":0.000000,"name":"e\\u004Bonto","flags":[true,false,null]},
+                            null,
+                            {"accountNumber":"12","balance":null,"name":"No balance"},
+                            {"accountNumber":"13","balance":123456789012345678901234.5,"name":"Wide"},
+                            {"accountNumber":"14","balance":1.5E+3,"name":"Exponent"}
+                        ]},
+                        {"accounts":null},
+                        {"accounts":[]}
+                    ]
+                }
+                """;
+        List<Account> accounts = new ArrayList<>();
+
+        // when
+        boolean groupsPresent = AccountsDecoder.decode(new StringReader(json), view -> accounts.add(view.toAccount()));
+
+        // then
+        assertTrue(groupsPresent);
+        assertEquals(List.of(
+                new Account("11 \"22\"", new BigDecimal("0.000000"), "eKonto"),
+                new Account("12", null, "No balance"),
+                new Account("13", new BigDecimal("123456789012345678901234.5"), "Wide"),
+                new Account("14", new BigDecimal("1.5E+3"), "Exponent")), accounts);
+    }
+
+    @Test
+    void shouldDecodeAccountsSpanningBufferRefills() throws IOException, ResponseHandlingException {
+        // given
+        StringBuilder json = new StringBuilder("{\"accountsGroups\":[{\"accounts\":[");
+        for (int i = 0; i < 2000; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"accountNumber\":\"").append(i).append("\",\"balance\":").append(i).append('.').append(i % 10).append(i % 7)
+                    .append(",\"currency\":\"PLN\",\"name\":\"eKonto ").append(i).append("\"}");
+        }
+        json.append("]}]}");
+        List<AccountView> views = new ArrayList<>();
+        long[] total = new long[1];
+
+        // when
+        AccountsDecoder.decode(new StringReader(json.toString()), view -> {
+            if (views.isEmpty() || views.getLast() != view) {
+                views.add(view);
+            }
+            total[0] += view.minorUnits(2);
+        });
+
+        // then
+        long expected = 0;
+        for (int i = 0; i < 2000; i++) {
+            expected += i * 100L + (i % 10) * 10 + i % 7;
+        }
+        assertEquals(expected, total[0]);
+        assertEquals(1, views.size());
+    }
+
+    @Test
+    void shouldReportEmptyAndMalformedBodies() throws IOException, ResponseHandlingException {
+        // when & then
+        assertFalse(AccountsDecoder.decode(new StringReader(""), view -> fail()));
+        assertFalse(AccountsDecoder.decode(new StringReader(" null "), view -> fail()));
+        assertTrue(AccountsDecoder.decode(new StringReader("{}"), view -> fail()));
+        assertThrows(ResponseHandlingException.class, () -> AccountsDecoder.decode(new StringReader("malformed data"), view -> { }));
+        assertThrows(ResponseHandlingException.class, () -> AccountsDecoder.decode(
+                new StringReader("{\"accountsGroups\":[{\"accounts\":[{\"balance\":1.2.3}]}]}"), view -> { }));
+        assertThrows(ResponseHandlingException.class, () -> AccountsDecoder.decode(
+                new StringReader("{\"accountsGroups\":[{\"accounts\":[{\"name\":\"cut"), view -> { }));
+    }
+}
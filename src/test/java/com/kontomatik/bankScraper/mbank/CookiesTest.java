@@ -0,0 +1,123 @@
+package com.kontomatik.bankScraper.mbank;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpCookie;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CookiesTest {
+
+    private static final String LOGIN_URL = "https://online.mbank.pl/pl/LoginMain/Account/JsonLogin";
+    private static final String ACCOUNTS_URL = "https://online.mbank.pl/pl/Accounts/Accounts/List";
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void shouldHandOutSameSnapshotUntilCookiesChange() {
+        // given
+        Cookies cookies = new Cookies(clock);
+        cookies.addCookies(Map.of("SESSION", "abc"));
+
+        // when
+        Cookies.Snapshot first = cookies.snapshot();
+        Cookies.Snapshot second = cookies.snapshot();
+        cookies.addCookies(Map.of("SESSION", "def"));
+
+        // then
+        assertSame(first, second);
+        assertSame(first.asMap(), second.asMap());
+        assertEquals(Map.of("SESSION", "abc"), first.asMap());
+        assertEquals(Map.of("SESSION", "def"), cookies.getCookies());
+        assertEquals(first.version() + 1, cookies.version());
+    }
+
+    @Test
+    void shouldScopeCookiesByDomainAndPath() {
+        // given
+        Cookies cookies = new Cookies(clock);
+        cookies.addCookies(LOGIN_URL, List.of(
+                cookie("SESSION", "abc", null, "/"),
+                cookie("LOGIN_STEP", "1", null, "/pl/LoginMain"),
+                cookie("TRACKING", "xyz", "mbank.pl", "/"),
+                cookie("FOREIGN", "evil", "example.com", "/")));
+
+        // when
+        Map<String, String> forAccounts = cookies.cookiesFor(ACCOUNTS_URL);
+        Map<String, String> forLogin = cookies.cookiesFor(LOGIN_URL);
+        Map<String, String> forOtherHost = cookies.cookiesFor("https://other.example.com/pl/Accounts");
+
+        // then
+        assertEquals(Map.of("SESSION", "abc", "TRACKING", "xyz"), forAccounts);
+        assertEquals(Map.of("SESSION", "abc", "LOGIN_STEP", "1", "TRACKING", "xyz"), forLogin);
+        assertTrue(forOtherHost.isEmpty());
+    }
+
+    @Test
+    void shouldDropExpiredAndDeletedCookies() {
+        // given
+        Cookies cookies = new Cookies(clock);
+        HttpCookie shortLived = cookie("OTP", "123", null, "/");
+        shortLived.setMaxAge(60);
+        cookies.addCookies(LOGIN_URL, List.of(cookie("SESSION", "abc", null, "/"), shortLived, cookie("TAB", "1", null, "/")));
+
+        // when
+        HttpCookie deletion = cookie("TAB", "", null, "/");
+        deletion.setMaxAge(0);
+        cookies.addCookies(LOGIN_URL, List.of(deletion));
+        Map<String, String> beforeExpiry = cookies.cookiesFor(ACCOUNTS_URL);
+        clock.advance(Duration.ofSeconds(60));
+
+        // then
+        assertEquals(Map.of("SESSION", "abc", "OTP", "123"), beforeExpiry);
+        assertEquals(Map.of("SESSION", "abc"), cookies.cookiesFor(ACCOUNTS_URL));
+        assertEquals(1, cookies.snapshot().size());
+    }
+
+    @Test
+    void shouldNotLoseCookiesMergedConcurrently() {
+        // given
+        Cookies cookies = new Cookies(clock);
+        int writers = 64;
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < writers; i++) {
+                String name = "cookie" + i;
+                executor.execute(() -> cookies.addCookies(LOGIN_URL, List.of(cookie(name, "value", null, "/"))));
+            }
+        }
+
+        // then
+        assertEquals(writers, cookies.getCookies().size());
+        assertEquals(writers, cookies.version());
+    }
+
+    @Test
+    void shouldPreferMostSpecificPathWhenNameIsShared() {
+        // given
+        Cookies cookies = new Cookies(clock);
+        List<HttpCookie> setCookies = new ArrayList<>();
+        setCookies.add(cookie("SESSION", "site", null, "/"));
+        setCookies.add(cookie("SESSION", "login", null, "/pl/LoginMain"));
+        cookies.addCookies(LOGIN_URL, setCookies);
+
+        // when & then
+        assertEquals(Map.of("SESSION", "login"), cookies.cookiesFor(LOGIN_URL));
+        assertEquals(Map.of("SESSION", "site"), cookies.cookiesFor(ACCOUNTS_URL));
+        assertEquals(2, cookies.snapshot().size());
+    }
+
+    private static HttpCookie cookie(String name, String value, String domain, String path) {
+        HttpCookie cookie = new HttpCookie(name, value);
+        cookie.setDomain(domain);
+        cookie.setPath(path);
+        return cookie;
+    }
+}
@@ -4,9 +4,14 @@ import com.github.tomakehurst.wiremock.WireMockServer;
 import com.google.gson.Gson;
 import com.kontomatik.bankScraper.exceptions.AuthenticationException;
 import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.services.HostGuards;
+import com.kontomatik.bankScraper.services.JsonCodec;
 import com.kontomatik.bankScraper.services.JsoupClient;
+import com.kontomatik.bankScraper.services.PooledHttpTransport;
 import com.kontomatik.bankScraper.services.ResponseHandler;
-import com.kontomatik.bankScraper.ui.ConsolePrinter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.kontomatik.bankScraper.tracing.Tracer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,9 +32,16 @@ import static org.junit.jupiter.api.Assertions.*;
 @ContextConfiguration(classes = {
         MbankAuthentication.class,
         JsoupClient.class,
-        ConsolePrinter.class,
+        HostGuards.class,
+        PooledHttpTransport.class,
+        MbankMetrics.class,
+        MbankEndpoints.class,
+        Tracer.class,
+        SimpleMeterRegistry.class,
+        TwoFactorStatusPoller.class,
         ResponseHandler.class,
-        ResponseHandler.class
+        JsonCodec.class,
+        MbankJsonAdapters.class
 })
 @TestPropertySource("classpath:application-test.properties")
 class MbankAuthenticationTest {
@@ -38,6 +50,8 @@ class MbankAuthenticationTest {
     private Gson gson;
     @Autowired
     private MbankAuthentication authentication;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Value("${mbank.wiremock.port}")
     private Integer wireMockPort;
@@ -128,6 +142,33 @@ class MbankAuthenticationTest {
         assertEquals(expectedMessage, actualMessage);
     }
 
+    @Test
+    void shouldRecordStepMetricsTaggedWithOutcome() {
+        meterRegistry.clear();
+        var responseBodyLogin = "{\"successful\":true,\"errorMessageTitle\":\"\"}";
+        stubFor(post(urlEqualTo(loginUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withBody(responseBodyLogin)
+                ));
+        stubFor(get(urlEqualTo(fetchCsrfTokenUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withBody("{\"antiForgeryToken\":\"\"}")
+                ));
+
+        assertThrows(AuthenticationException.class, () -> authentication.authenticate(credentials));
+
+        assertEquals(1, meterRegistry.get("mbank.auth.step")
+                .tags("step", "initialLogin", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("mbank.auth.step")
+                .tags("step", "fetchCsrfToken", "outcome", "AuthenticationException").timer().count());
+        assertEquals(1, meterRegistry.get("bank.http.requests")
+                .tags("uri", fetchCsrfTokenUrl, "status", "200").timer().count());
+    }
+
     @Test
     void shouldThrowExceptionWhenFetchScaAuthorizationDataFails() {
         var expectedStatusLogin = 200;
@@ -164,6 +205,91 @@ class MbankAuthenticationTest {
         assertEquals(expectedMessage, actualMessage);
     }
 
+    @Test
+    void shouldFetchCsrfTokenAndScaDataConcurrently() {
+        // given
+        stubFor(post(urlEqualTo(loginUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withBody("{\"successful\":true,\"errorMessageTitle\":\"\"}")
+                ));
+        stubFor(get(urlEqualTo(fetchCsrfTokenUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withFixedDelay(1000)
+                        .withBody("{\"antiForgeryToken\":\"testCsrfToken\"}")
+                ));
+        stubFor(post(urlEqualTo(fetchScaIdUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withFixedDelay(1000)
+                        .withBody("{\"ScaAuthorizationId\":\"testScaId\"}")
+                ));
+        stubFor(post(urlEqualTo(beginTwoFactorAuthUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withBody("{\"TranId\":\"\"}")
+                ));
+
+        // when
+        Exception exception = assertThrows(AuthenticationException.class, () -> authentication.authenticate(credentials));
+
+        // then
+        // run one after the other, the second request could only arrive once the first had answered, after its delay
+        long csrfArrival = findAll(getRequestedFor(urlEqualTo(fetchCsrfTokenUrl))).get(0).getLoggedDate().getTime();
+        long scaArrival = findAll(postRequestedFor(urlEqualTo(fetchScaIdUrl))).get(0).getLoggedDate().getTime();
+        assertEquals("Failed to initialize 2FA", exception.getMessage());
+        assertTrue(Math.abs(csrfArrival - scaArrival) < 1000, "requests arrived " + Math.abs(csrfArrival - scaArrival) + "ms apart");
+    }
+
+    @Test
+    void shouldMergeConcurrentStepCookiesInDependencyOrder() {
+        // given
+        stubFor(post(urlEqualTo(loginUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Set-Cookie", "session=login")
+                        .withStatus(200)
+                        .withBody("{\"successful\":true,\"errorMessageTitle\":\"\"}")
+                ));
+        stubFor(get(urlEqualTo(fetchCsrfTokenUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Set-Cookie", "shared=csrf")
+                        .withHeader("Set-Cookie", "csrfOnly=1")
+                        .withStatus(200)
+                        .withBody("{\"antiForgeryToken\":\"testCsrfToken\"}")
+                ));
+        stubFor(post(urlEqualTo(fetchScaIdUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Set-Cookie", "shared=sca")
+                        .withStatus(200)
+                        .withBody("{\"ScaAuthorizationId\":\"testScaId\"}")
+                ));
+        stubFor(post(urlEqualTo(beginTwoFactorAuthUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withBody("{\"TranId\":\"\"}")
+                ));
+
+        // when
+        assertThrows(AuthenticationException.class, () -> authentication.authenticate(credentials));
+
+        // then
+        verify(postRequestedFor(urlEqualTo(fetchScaIdUrl))
+                .withHeader("Cookie", equalTo("session=login")));
+        verify(postRequestedFor(urlEqualTo(beginTwoFactorAuthUrl))
+                .withHeader("Cookie", containing("session=login"))
+                .withHeader("Cookie", containing("csrfOnly=1"))
+                .withHeader("Cookie", containing("shared=sca")));
+    }
+
     @Test
     void shouldThrowExceptionWhenInitTwoFactoAuthFails() {
         var expectedStatusLogin = 200;
@@ -0,0 +1,183 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.exceptions.SessionExpiredException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.TransactionCursor;
+import com.kontomatik.bankScraper.services.ScrapeListener;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MbankOperationsTest {
+
+    private final Credentials credentials = new Credentials("testuser", "testpassword");
+    private final List<Account> accounts = List.of(new Account("123456", new BigDecimal("1000.0"), "eKonto"));
+
+    private MbankAuthentication authentication;
+    private MbankScraper scraper;
+    private MbankTransactionScraper transactionScraper;
+    private MbankOperations operations;
+
+    @BeforeEach
+    void setUp() {
+        authentication = mock(MbankAuthentication.class);
+        scraper = mock(MbankScraper.class);
+        transactionScraper = mock(MbankTransactionScraper.class);
+        SessionCache sessionCache = new SessionCache(Duration.ofMinutes(10), 10, 10_000, Clock.systemUTC());
+        operations = new MbankOperations(authentication, scraper, sessionCache, transactionScraper, Tracer.discarding());
+    }
+
+    @Test
+    void shouldReuseCachedSessionWithoutAuthenticatingAgain() {
+        // given
+        when(authentication.authenticate(eq(credentials), any())).thenReturn(new Cookies());
+        when(scraper.scrape(any())).thenReturn(accounts);
+
+        // when
+        operations.fetchAccountData(credentials);
+        var result = operations.fetchAccountData(credentials);
+
+        // then
+        assertEquals(accounts, result);
+        verify(authentication, times(1)).authenticate(eq(credentials), any());
+        verify(scraper, times(2)).scrape(any());
+    }
+
+    @Test
+    void shouldAuthenticateAgainWhenCachedSessionIsDead() {
+        // given
+        when(authentication.authenticate(eq(credentials), any())).thenReturn(new Cookies());
+        when(scraper.scrape(any()))
+                .thenReturn(accounts)
+                .thenThrow(new SessionExpiredException("The session has expired (HTTP 401)"))
+                .thenReturn(accounts);
+
+        // when
+        operations.fetchAccountData(credentials);
+        var result = operations.fetchAccountData(credentials);
+
+        // then
+        assertEquals(accounts, result);
+        verify(authentication, times(2)).authenticate(eq(credentials), any());
+    }
+
+    @Test
+    void shouldKeepCachedSessionWhenScrapeFailsForAnotherReason() {
+        // given
+        when(authentication.authenticate(eq(credentials), any())).thenReturn(new Cookies());
+        when(scraper.scrape(any()))
+                .thenReturn(accounts)
+                .thenThrow(new ScrapingException("An error has occurred during scraping: circuit open"))
+                .thenReturn(accounts);
+        operations.fetchAccountData(credentials);
+
+        // when
+        assertThrows(ScrapingException.class, () -> operations.fetchAccountData(credentials));
+        var result = operations.fetchAccountData(credentials);
+
+        // then
+        assertEquals(accounts, result);
+        verify(authentication, times(1)).authenticate(eq(credentials), any());
+    }
+
+    @Test
+    void shouldFetchTransactionsWithFreshSessionWhenCachedOneIsDead() {
+        // given
+        TransactionCursor cursor = new TransactionCursor("t-1", LocalDate.of(2024, 6, 1));
+        when(authentication.authenticate(eq(credentials), any())).thenReturn(new Cookies());
+        when(authentication.authenticate(credentials)).thenReturn(new Cookies());
+        when(scraper.scrape(any())).thenReturn(accounts);
+        when(transactionScraper.scrape(any(), eq("123456"), eq(null), any()))
+                .thenThrow(new SessionExpiredException("The session has expired (HTTP 403)"))
+                .thenReturn(cursor);
+        operations.fetchAccountData(credentials);
+
+        // when
+        TransactionCursor result = operations.fetchTransactions(credentials, "123456", null, transaction -> {});
+
+        // then
+        assertEquals(cursor, result);
+        verify(authentication, times(1)).authenticate(credentials);
+        verify(transactionScraper, times(2)).scrape(any(), eq("123456"), eq(null), any());
+    }
+
+    @Test
+    void shouldKeepCachedSessionWhenTransactionScrapeFailsForAnotherReason() {
+        // given
+        when(authentication.authenticate(eq(credentials), any())).thenReturn(new Cookies());
+        when(scraper.scrape(any())).thenReturn(accounts);
+        when(transactionScraper.scrape(any(), eq("123456"), eq(null), any()))
+                .thenThrow(new ScrapingException("An error has occurred during scraping transactions: HTTP 503"));
+        operations.fetchAccountData(credentials);
+
+        // when
+        assertThrows(ScrapingException.class, () -> operations.fetchTransactions(credentials, "123456", null, transaction -> {}));
+
+        // then
+        verify(authentication, never()).authenticate(credentials);
+        verify(authentication, times(1)).authenticate(eq(credentials), any());
+    }
+
+    @Test
+    void shouldNotLogInAgainForTransactionsWhenCallerIsInterrupted() {
+        // given
+        when(authentication.authenticate(eq(credentials), any())).thenReturn(new Cookies());
+        when(scraper.scrape(any())).thenReturn(accounts);
+        when(transactionScraper.scrape(any(), eq("123456"), eq(null), any())).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            throw new SessionExpiredException("The session has expired (HTTP 401)");
+        });
+        operations.fetchAccountData(credentials);
+
+        // when
+        try {
+            assertThrows(SessionExpiredException.class,
+                    () -> operations.fetchTransactions(credentials, "123456", null, transaction -> {}));
+        } finally {
+            Thread.interrupted();
+        }
+
+        // then
+        verify(authentication, never()).authenticate(credentials);
+    }
+
+    @Test
+    void shouldStreamAccountsWithFreshSessionWhenCachedOneFailsBeforeEmitting() {
+        // given
+        when(authentication.authenticate(eq(credentials), any())).thenReturn(new Cookies());
+        when(scraper.scrape(any())).thenReturn(accounts);
+        doThrow(new SessionExpiredException("The session has expired (HTTP 200)"))
+                .doAnswer(invocation -> {
+                    Consumer<Account> sink = invocation.getArgument(1);
+                    accounts.forEach(sink);
+                    return null;
+                })
+                .when(scraper).scrape(any(), ArgumentMatchers.<Consumer<Account>>any());
+        operations.fetchAccountData(credentials);
+        List<Account> streamed = new ArrayList<>();
+
+        // when
+        operations.streamAccountData(credentials, ScrapeListener.NONE, streamed::add);
+
+        // then
+        assertEquals(accounts, streamed);
+        verify(authentication, times(2)).authenticate(eq(credentials), any());
+    }
+}
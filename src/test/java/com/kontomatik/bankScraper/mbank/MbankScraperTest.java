@@ -1,10 +1,16 @@
 package com.kontomatik.bankScraper.mbank;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.google.gson.Gson;
 import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.exceptions.SessionExpiredException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.services.HostGuards;
 import com.kontomatik.bankScraper.services.JsoupClient;
-import com.kontomatik.bankScraper.services.ResponseHandler;
+import com.kontomatik.bankScraper.services.PooledHttpTransport;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +23,10 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,8 +35,12 @@ import static org.junit.jupiter.api.Assertions.*;
 @ContextConfiguration(classes = {
         MbankScraper.class,
         JsoupClient.class,
-        ResponseHandler.class,
-        ResponseHandler.class
+        HostGuards.class,
+        PooledHttpTransport.class,
+        MbankMetrics.class,
+        MbankEndpoints.class,
+        Tracer.class,
+        SimpleMeterRegistry.class
 })
 @TestPropertySource("classpath:application-test.properties")
 class MbankScraperTest {
@@ -122,6 +136,95 @@ class MbankScraperTest {
         assertDoesNotThrow(() -> mbankScraper.scrape(new Cookies()));
     }
 
+    @Test
+    void shouldStreamAccountsFromAllGroupsInOrder() {
+        // Given
+        String jsonString = """
+                {
+                    "accountsGroups":[
+                        {"accounts":[{"accountNumber":"1","balance":10.50,"currency":"PLN","name":"eKonto"}],"header":"Personal"},
+                        {"accounts":[],"header":"Savings"},
+                        {"accounts":[{"accountNumber":"2","balance":0.00,"currency":"EUR","name":"eKonto walutowe EUR"}],"header":"Foreigns"}
+                    ],
+                    "summary":{"currency":"PLN","balance":10.50}
+                }
+                """;
+        stubFor(get(urlEqualTo(accountsUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withBody(jsonString)
+                ));
+        List<Account> emitted = new ArrayList<>();
+
+        // When
+        mbankScraper.scrape(new Cookies(), emitted::add);
+
+        // Then
+        assertEquals(List.of(
+                new Account("1", new BigDecimal("10.50"), "eKonto"),
+                new Account("2", new BigDecimal("0.00"), "eKonto walutowe EUR")), emitted);
+    }
+
+    @Test
+    void shouldRetryAccountsAfterConnectionReset() {
+        // given
+        String jsonString = """
+                {
+                    "accountsGroups":[
+                        {"accounts":[{"accountNumber":"1","balance":10.50,"currency":"PLN","name":"eKonto"}],"header":"Personal"}
+                    ]
+                }
+                """;
+        stubFor(get(urlEqualTo(accountsUrl)).inScenario("reset")
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlEqualTo(accountsUrl)).inScenario("reset").whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withStatus(200)
+                        .withBody(jsonString)
+                ));
+
+        // when
+        List<Account> accounts = mbankScraper.scrape(new Cookies());
+
+        // then
+        assertEquals(List.of(new Account("1", new BigDecimal("10.50"), "eKonto")), accounts);
+        verify(2, getRequestedFor(urlEqualTo(accountsUrl)));
+    }
+
+    @Test
+    void shouldReportExpiredSessionWhenRedirectedToLoginPage() {
+        // given
+        stubFor(get(urlEqualTo(accountsUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/html; charset=utf-8")
+                        .withStatus(200)
+                        .withBody("<html><body>Zaloguj się</body></html>")
+                ));
+
+        // when & then
+        assertThrows(SessionExpiredException.class, () -> mbankScraper.scrape(new Cookies()));
+    }
+
+    @Test
+    void shouldNotReportExpiredSessionForErrorPage() {
+        // given
+        stubFor(get(urlEqualTo(accountsUrl))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/html")
+                        .withStatus(404)
+                        .withBody("<html><body>Nie znaleziono</body></html>")
+                ));
+
+        // when
+        Exception exception = assertThrows(ScrapingException.class, () -> mbankScraper.scrape(new Cookies()));
+
+        // then
+        assertFalse(exception instanceof SessionExpiredException);
+    }
+
     @Test
     void shouldThrowException() {
         // Given
@@ -0,0 +1,187 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.google.gson.Gson;
+import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.models.Transaction;
+import com.kontomatik.bankScraper.models.TransactionCursor;
+import com.kontomatik.bankScraper.services.HostGuards;
+import com.kontomatik.bankScraper.services.JsonCodec;
+import com.kontomatik.bankScraper.services.JsoupClient;
+import com.kontomatik.bankScraper.services.PooledHttpTransport;
+import com.kontomatik.bankScraper.services.ResponseHandler;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {
+        MbankTransactionScraper.class,
+        JsoupClient.class,
+        HostGuards.class,
+        PooledHttpTransport.class,
+        MbankMetrics.class,
+        MbankEndpoints.class,
+        Tracer.class,
+        SimpleMeterRegistry.class,
+        ResponseHandler.class,
+        JsonCodec.class,
+        MbankJsonAdapters.class
+})
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = {"mbank.transactions.pageSize=2", "mbank.transactions.prefetchWindow=4"})
+class MbankTransactionScraperTest {
+    private static final String ACCOUNT = "05 1120 2004 0000 3212 7715 8837";
+
+    @SpyBean
+    private Gson gson;
+    @Autowired
+    private MbankTransactionScraper transactionScraper;
+
+    private WireMockServer wireMockServer;
+
+    @Value("${mbank.wiremock.port}")
+    private Integer wireMockPort;
+
+    @Value("${mbank.transactions.url}")
+    private String transactionsUrl;
+
+    @BeforeEach
+    void setup() {
+        wireMockServer = new WireMockServer(wireMockPort);
+        wireMockServer.start();
+        configureFor("localhost", wireMockPort);
+    }
+
+    @AfterEach
+    void cleanup() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void shouldStreamAllPagesInOrderAndReturnNewestAsCursor() {
+        // given
+        stubPage(0, 0, transaction("t-6", "2024-06-06"), transaction("t-5", "2024-06-05"));
+        stubPage(1, 0, transaction("t-4", "2024-06-04T00:00:00"), transaction("t-3", "2024-06-03"));
+        stubPage(2, 0, transaction("t-2", "2024-06-02"));
+        List<Transaction> emitted = new ArrayList<>();
+
+        // when
+        TransactionCursor cursor = transactionScraper.scrape(new Cookies(), ACCOUNT, null, emitted::add);
+
+        // then
+        assertEquals(List.of("t-6", "t-5", "t-4", "t-3", "t-2"), emitted.stream().map(Transaction::id).toList());
+        assertEquals(new Transaction("t-4", ACCOUNT, LocalDate.of(2024, 6, 4), new BigDecimal("-12.50"), "PLN", "Card payment"),
+                emitted.get(2));
+        assertEquals(new TransactionCursor("t-6", LocalDate.of(2024, 6, 6)), cursor);
+    }
+
+    @Test
+    void shouldStopAtCursorOnIncrementalFetch() {
+        // given
+        TransactionCursor since = new TransactionCursor("t-4", LocalDate.of(2024, 6, 4));
+        stubFor(get(urlPathEqualTo(transactionsUrl))
+                .withQueryParam("page", equalTo("0"))
+                .withQueryParam("dateFrom", equalTo("2024-06-04"))
+                .willReturn(okJson(page(transaction("t-6", "2024-06-06"), transaction("t-5", "2024-06-05")))));
+        stubFor(get(urlPathEqualTo(transactionsUrl))
+                .withQueryParam("page", equalTo("1"))
+                .withQueryParam("dateFrom", equalTo("2024-06-04"))
+                .willReturn(okJson(page(transaction("t-4", "2024-06-04"), transaction("t-3", "2024-06-04")))));
+        List<Transaction> emitted = new ArrayList<>();
+
+        // when
+        TransactionCursor cursor = transactionScraper.scrape(new Cookies(), ACCOUNT, since, emitted::add);
+
+        // then
+        assertEquals(List.of("t-6", "t-5"), emitted.stream().map(Transaction::id).toList());
+        assertEquals(new TransactionCursor("t-6", LocalDate.of(2024, 6, 6)), cursor);
+    }
+
+    @Test
+    void shouldKeepCursorWhenNothingNewWasBooked() {
+        // given
+        TransactionCursor since = new TransactionCursor("t-6", LocalDate.of(2024, 6, 6));
+        stubPage(0, 0, transaction("t-6", "2024-06-06"), transaction("t-5", "2024-06-05"));
+
+        // when
+        TransactionCursor cursor = transactionScraper.scrape(new Cookies(), ACCOUNT, since, transaction -> fail());
+
+        // then
+        assertEquals(since, cursor);
+        verify(1, getRequestedFor(urlPathEqualTo(transactionsUrl)));
+    }
+
+    @Test
+    void shouldPrefetchPagesConcurrently() {
+        // given
+        for (int page = 0; page < 8; page++) {
+            stubPage(page, 200, transaction("t-" + (2 * page), "2024-06-06"), transaction("t-" + (2 * page + 1), "2024-06-06"));
+        }
+        stubPage(8, 200);
+        List<Transaction> emitted = new ArrayList<>();
+
+        // when
+        long start = System.nanoTime();
+        transactionScraper.scrape(new Cookies(), ACCOUNT, null, emitted::add);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then
+        assertEquals(16, emitted.size());
+        assertEquals("t-15", emitted.getLast().id());
+        assertTrue(elapsedMillis < 1200, "took " + elapsedMillis + "ms for 9 pages of 200ms");
+    }
+
+    @Test
+    void shouldHandleMalformedPage() {
+        // given
+        stubFor(get(urlPathEqualTo(transactionsUrl))
+                .willReturn(okJson("{\"transactions\":[{\"id\":\"t-1\",\"amount\":\"lots\"}]}")));
+
+        // when
+        Exception exception = assertThrows(ScrapingException.class,
+                () -> transactionScraper.scrape(new Cookies(), ACCOUNT, null, transaction -> {}));
+
+        // then
+        assertEquals("An error has occurred during scraping transactions: Something went wrong while parsing the response body",
+                exception.getMessage());
+    }
+
+    private void stubPage(int page, int delayMillis, String... transactions) {
+        stubFor(get(urlPathEqualTo(transactionsUrl))
+                .withQueryParam("accountNumber", equalTo(ACCOUNT))
+                .withQueryParam("page", equalTo(String.valueOf(page)))
+                .withQueryParam("pageSize", equalTo("2"))
+                .willReturn(okJson(page(transactions)).withFixedDelay(delayMillis)));
+    }
+
+    private static String page(String... transactions) {
+        return "{\"transactions\":[" + String.join(",", transactions) + "],\"hasMore\":true}";
+    }
+
+    private static String transaction(String id, String bookingDate) {
+        return """
+                {"id":"%s","bookingDate":"%s","amount":-12.50,"currency":"PLN","description":"Card payment","category":"Food"}"""
+                .formatted(id, bookingDate);
+    }
+}
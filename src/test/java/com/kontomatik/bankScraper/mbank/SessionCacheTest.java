@@ -0,0 +1,92 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.CredentialsKey;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final Credentials alice = new Credentials("alice", "secret");
+    private final Credentials bob = new Credentials("bob", "secret");
+
+    @Test
+    void shouldReturnCookiesUntilTtlExpires() {
+        // given
+        SessionCache cache = new SessionCache(Duration.ofMinutes(10), 10, 10_000, clock);
+        Cookies cookies = cookiesOf("SESSION", "abc");
+        cache.put(alice, cookies);
+
+        // when & then
+        assertSame(cookies, cache.get(alice).orElseThrow());
+        clock.advance(Duration.ofMinutes(10));
+        assertTrue(cache.get(alice).isEmpty());
+        assertEquals(0, cache.usedBytes());
+    }
+
+    @Test
+    void shouldNotServeSessionForDifferentPassword() {
+        // given
+        SessionCache cache = new SessionCache(Duration.ofMinutes(10), 10, 10_000, clock);
+        cache.put(alice, cookiesOf("SESSION", "abc"));
+
+        // when & then
+        assertTrue(cache.get(new Credentials("alice", "other")).isEmpty());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedSessionWhenFull() {
+        // given
+        SessionCache cache = new SessionCache(Duration.ofMinutes(10), 2, 10_000, clock);
+        Credentials carol = new Credentials("carol", "secret");
+        cache.put(alice, cookiesOf("SESSION", "a"));
+        cache.put(bob, cookiesOf("SESSION", "b"));
+        cache.get(alice);
+
+        // when
+        cache.put(carol, cookiesOf("SESSION", "c"));
+
+        // then
+        assertTrue(cache.get(alice).isPresent());
+        assertTrue(cache.get(bob).isEmpty());
+        assertTrue(cache.get(carol).isPresent());
+    }
+
+    @Test
+    void shouldStayWithinMemoryBudget() {
+        // given
+        SessionCache cache = new SessionCache(Duration.ofMinutes(10), 100, 600, clock);
+
+        // when
+        cache.put(alice, cookiesOf("SESSION", "a".repeat(100)));
+        cache.put(bob, cookiesOf("SESSION", "b".repeat(100)));
+
+        // then
+        assertEquals(1, cache.size());
+        assertTrue(cache.usedBytes() <= 600);
+        assertTrue(cache.get(bob).isPresent());
+    }
+
+    @Test
+    void shouldNotKeepPlaintextPasswordInCacheKey() {
+        // given
+        CredentialsKey key = CredentialsKey.of(alice);
+
+        // when & then
+        assertEquals("alice", key.username());
+        assertFalse(key.passwordHash().contains("secret"));
+        assertEquals(key, CredentialsKey.of(new Credentials("alice", "secret")));
+        assertNotEquals(key, CredentialsKey.of(new Credentials("alice", "other")));
+    }
+
+    private static Cookies cookiesOf(String name, String value) {
+        Cookies cookies = new Cookies();
+        cookies.addCookies(Map.of(name, value));
+        return cookies;
+    }
+}
@@ -0,0 +1,115 @@
+package com.kontomatik.bankScraper.mbank;
+
+import com.kontomatik.bankScraper.exceptions.AuthenticationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoFactorStatusPollerTest {
+
+    private final TwoFactorStatusPoller poller = new TwoFactorStatusPoller(10, 40, 2.0, 1);
+
+    @AfterEach
+    void cleanup() {
+        poller.shutdown();
+    }
+
+    @Test
+    void shouldCompleteWhenStatusBecomesAuthorized() {
+        // given
+        Iterator<String> statuses = List.of("PreAuthorized", "PreAuthorized", "Authorized").iterator();
+
+        // when
+        CompletableFuture<Void> authorization = poller.awaitAuthorization(statuses::next);
+
+        // then
+        assertDoesNotThrow(() -> authorization.get(1, TimeUnit.SECONDS));
+        assertFalse(statuses.hasNext());
+    }
+
+    @Test
+    void shouldFailWhenUserCancels() {
+        // given
+        Iterator<String> statuses = List.of("PreAuthorized", "Canceled").iterator();
+
+        // when
+        CompletableFuture<Void> authorization = poller.awaitAuthorization(statuses::next);
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> authorization.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(AuthenticationException.class, exception.getCause());
+        assertEquals("2FA cancelled by user", exception.getCause().getMessage());
+    }
+
+    @Test
+    void shouldTimeOutAfterConfiguredPeriod() {
+        // given
+        AtomicInteger polls = new AtomicInteger();
+
+        // when
+        CompletableFuture<Void> authorization = poller.awaitAuthorization(() -> {
+            polls.incrementAndGet();
+            return "PreAuthorized";
+        });
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> authorization.get(3, TimeUnit.SECONDS));
+        assertEquals("Timeout (1s) reached for 2FA verification", exception.getCause().getMessage());
+        assertTrue(polls.get() < 40);
+    }
+
+    @Test
+    void shouldStopPollingWhenCancelled() throws InterruptedException {
+        // given
+        AtomicInteger polls = new AtomicInteger();
+        CompletableFuture<Void> authorization = poller.awaitAuthorization(() -> {
+            polls.incrementAndGet();
+            return "PreAuthorized";
+        });
+
+        // when
+        authorization.cancel(true);
+        Thread.sleep(100);
+        int pollsAfterCancel = polls.get();
+        Thread.sleep(100);
+
+        // then
+        assertEquals(pollsAfterCancel, polls.get());
+    }
+
+    @Test
+    void shouldInterruptStatusCheckAndStopPollingWhenCancelled() throws InterruptedException {
+        // given
+        AtomicInteger polls = new AtomicInteger();
+        CountDownLatch checking = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Void> authorization = poller.awaitAuthorization(() -> {
+            polls.incrementAndGet();
+            checking.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "PreAuthorized";
+        });
+        assertTrue(checking.await(1, TimeUnit.SECONDS));
+
+        // when
+        authorization.cancel(true);
+
+        // then
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, polls.get());
+    }
+}
@@ -0,0 +1,174 @@
+package com.kontomatik.bankScraper.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.kontomatik.bankScraper.exceptions.AuthenticationException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.services.BankOperationsService;
+import com.kontomatik.bankScraper.services.ScrapeListener;
+import com.kontomatik.bankScraper.store.AccountSnapshotStore;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScrapeServerTest {
+
+    private final Gson gson = new Gson();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final CountDownLatch approved = new CountDownLatch(1);
+
+    @TempDir
+    private Path directory;
+
+    private AccountSnapshotStore snapshotStore;
+    private ScrapeJobService jobs;
+    private ScrapeServer server;
+
+    @BeforeEach
+    void setup() throws IOException {
+        snapshotStore = new AccountSnapshotStore(directory.toString(), 1 << 16, 365, false);
+        jobs = new ScrapeJobService(new FakeBank(), snapshotStore, Tracer.discarding(), 4, Duration.ofMinutes(15), Clock.systemUTC());
+        server = new ScrapeServer(jobs, gson, "127.0.0.1", 0, 5);
+        server.start();
+    }
+
+    @AfterEach
+    void cleanup() {
+        server.stop();
+        jobs.shutdown();
+        snapshotStore.close();
+    }
+
+    @Test
+    void shouldAcceptJobAndLetClientFollowTwoFactorUntilResult() throws Exception {
+        // given
+        HttpResponse<String> submitted = post("{\"username\":\"alice\",\"password\":\"secret\"}");
+        String id = json(submitted).get("id").getAsString();
+
+        // when
+        JsonObject waiting = followUntil(id, JobStatus.AWAITING_TWO_FACTOR);
+        approved.countDown();
+        JsonObject finished = followUntil(id, JobStatus.SUCCEEDED);
+
+        // then
+        assertEquals(202, submitted.statusCode());
+        assertEquals("/jobs/" + id, submitted.headers().firstValue("Location").orElseThrow());
+        assertEquals("AWAITING_TWO_FACTOR", waiting.get("status").getAsString());
+        assertEquals("123", finished.getAsJsonArray("accounts").get(0).getAsJsonObject().get("accountNumber").getAsString());
+        assertEquals(new BigDecimal("10.50"), snapshotStore.latest("123").orElseThrow().account().balance());
+    }
+
+    @Test
+    void shouldReportFailedJob() throws Exception {
+        // given
+        String id = json(post("{\"username\":\"mallory\",\"password\":\"wrong\"}")).get("id").getAsString();
+
+        // when
+        JsonObject failed = followUntil(id, JobStatus.FAILED);
+
+        // then
+        assertEquals("Authentication failed: Passed credentials are invalid.", failed.get("error").getAsString());
+    }
+
+    @Test
+    void shouldFailJobWhenFlowThrowsError() throws Exception {
+        // given
+        String id = json(post("{\"username\":\"deep\",\"password\":\"secret\"}")).get("id").getAsString();
+
+        // when
+        JsonObject failed = followUntil(id, JobStatus.FAILED);
+
+        // then
+        assertEquals("java.lang.StackOverflowError", failed.get("error").getAsString());
+    }
+
+    @Test
+    void shouldRejectBadRequestsAndUnknownJobs() throws Exception {
+        // when
+        HttpResponse<String> blank = post("{\"username\":\"alice\",\"password\":\" \"}");
+        HttpResponse<String> malformed = post("not json");
+        HttpResponse<String> unknown = get("/jobs/nope");
+        HttpResponse<String> badStatus = get("/jobs/nope?after=SLEEPING");
+
+        // then
+        assertEquals(400, blank.statusCode());
+        assertEquals(400, malformed.statusCode());
+        assertEquals(404, unknown.statusCode());
+        assertEquals(400, badStatus.statusCode());
+    }
+
+    private JsonObject followUntil(String id, JobStatus expected) throws Exception {
+        JsonObject state = json(get("/jobs/" + id));
+        for (int i = 0; i < 10 && !state.get("status").getAsString().equals(expected.name()); i++) {
+            state = json(get("/jobs/" + id + "?after=" + state.get("status").getAsString() + "&wait=2"));
+        }
+        assertEquals(expected.name(), state.get("status").getAsString());
+        return state;
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/jobs"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.port() + path);
+    }
+
+    private JsonObject json(HttpResponse<String> response) {
+        return gson.fromJson(response.body(), JsonObject.class);
+    }
+
+    private class FakeBank implements BankOperationsService {
+        @Override
+        public List<Account> fetchAccountData(Credentials credentials) {
+            return fetchAccountData(credentials, ScrapeListener.NONE);
+        }
+
+        @Override
+        public List<Account> fetchAccountData(Credentials credentials, ScrapeListener listener) {
+            if (credentials.username().equals("mallory")) {
+                throw new AuthenticationException("Authentication failed: Passed credentials are invalid.");
+            }
+            if (credentials.username().equals("deep")) {
+                throw new StackOverflowError();
+            }
+            listener.onTwoFactorAuthStarted();
+            try {
+                approved.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            listener.onScrapeStarted();
+            return List.of(new Account("123", new BigDecimal("10.50"), "eKonto"));
+        }
+
+        @Override
+        public String bankHost() {
+            return "localhost";
+        }
+    }
+}
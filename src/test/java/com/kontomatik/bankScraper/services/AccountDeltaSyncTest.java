@@ -0,0 +1,181 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.AccountChange;
+import com.kontomatik.bankScraper.models.Credentials;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccountDeltaSyncTest {
+
+    private final Credentials credentials = new Credentials("alice", "secret");
+    private final Account savings = new Account("111", new BigDecimal("100.00"), "Savings");
+    private final Account checking = new Account("222", new BigDecimal("50.00"), "eKonto");
+    private final AccountDeltaSync deltaSync = new AccountDeltaSync();
+
+    @Test
+    void shouldReportEveryAccountAsAddedOnFirstSync() {
+        // when
+        List<AccountChange> changes = deltaSync.diff("mbank", "alice", List.of(savings, checking));
+
+        // then
+        assertEquals(List.of(AccountChange.added(savings), AccountChange.added(checking)), changes);
+    }
+
+    @Test
+    void shouldReportOnlyAddedRemovedAndChangedAccounts() {
+        // given
+        deltaSync.diff("mbank", "alice", List.of(savings, checking));
+        Account movedChecking = new Account("222", new BigDecimal("75.50"), "eKonto");
+        Account newCard = new Account("333", BigDecimal.ZERO, "Card");
+
+        // when
+        List<AccountChange> changes = deltaSync.diff("mbank", "alice", List.of(movedChecking, newCard));
+
+        // then
+        assertEquals(List.of(
+                AccountChange.changed(checking, movedChecking),
+                AccountChange.added(newCard),
+                AccountChange.removed(savings)), changes);
+        assertEquals(new BigDecimal("50.00"), changes.get(0).previousBalance());
+        assertEquals(new BigDecimal("75.50"), changes.get(0).currentBalance());
+    }
+
+    @Test
+    void shouldIgnoreBalanceScaleDifferences() {
+        // given
+        deltaSync.diff("mbank", "alice", List.of(savings));
+
+        // when
+        List<AccountChange> changes = deltaSync.diff("mbank", "alice", List.of(new Account("111", new BigDecimal("100.0"), "Savings")));
+
+        // then
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    void shouldKeepBaselineWhenFetchFails() {
+        // given
+        BankOperationsService bank = mock(BankOperationsService.class, CALLS_REAL_METHODS);
+        when(bank.fetchAccountData(credentials))
+                .thenReturn(List.of(savings))
+                .thenThrow(new ScrapingException("bank down"))
+                .thenReturn(List.of(savings));
+        deltaSync.sync(bank, credentials);
+
+        // when
+        assertThrows(ScrapingException.class, () -> deltaSync.sync(bank, credentials));
+        List<AccountChange> emitted = new ArrayList<>();
+        deltaSync.sync(bank, credentials, emitted::add);
+
+        // then
+        assertTrue(emitted.isEmpty());
+    }
+
+    @Test
+    void shouldKeepSeparateBaselinesPerBank() {
+        // given
+        deltaSync.diff("mbank", "alice", List.of(savings));
+
+        // when
+        List<AccountChange> changes = deltaSync.diff("pko", "alice", List.of(checking));
+
+        // then
+        assertEquals(List.of(AccountChange.added(checking)), changes);
+        assertTrue(deltaSync.diff("mbank", "alice", List.of(savings)).isEmpty());
+    }
+
+    @Test
+    void shouldEmitChangesWhileAccountsAreStillStreaming() {
+        // given
+        List<Object> events = new ArrayList<>();
+        BankOperationsService bank = new BankOperationsService() {
+            @Override
+            public List<Account> fetchAccountData(Credentials credentials) {
+                throw new AssertionError("should stream");
+            }
+
+            @Override
+            public void streamAccountData(Credentials credentials, ScrapeListener listener, Consumer<Account> sink) {
+                events.add("decoded " + savings.accountNumber());
+                sink.accept(savings);
+                events.add("decoded " + checking.accountNumber());
+                sink.accept(checking);
+            }
+
+            @Override
+            public String bankHost() {
+                return "mbank.example";
+            }
+        };
+
+        // when
+        deltaSync.sync(bank, credentials, events::add);
+
+        // then
+        assertEquals(List.of("decoded 111", AccountChange.added(savings), "decoded 222", AccountChange.added(checking)), events);
+    }
+
+    @Test
+    void shouldDiffConcurrentSyncAgainstTheBaselineOfTheOneBefore() throws Exception {
+        // given
+        CountDownLatch firstStreaming = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        BankOperationsService bank = new BankOperationsService() {
+            @Override
+            public List<Account> fetchAccountData(Credentials credentials) {
+                throw new AssertionError("should stream");
+            }
+
+            @Override
+            public void streamAccountData(Credentials credentials, ScrapeListener listener, Consumer<Account> sink) {
+                if (calls.incrementAndGet() == 1) {
+                    sink.accept(savings);
+                    firstStreaming.countDown();
+                    try {
+                        releaseFirst.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return;
+                }
+                sink.accept(savings);
+                sink.accept(checking);
+            }
+
+            @Override
+            public String bankHost() {
+                return "mbank.example";
+            }
+        };
+
+        // when
+        List<AccountChange> second;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<AccountChange>> first = executor.submit(() -> deltaSync.sync(bank, credentials));
+            assertTrue(firstStreaming.await(5, TimeUnit.SECONDS));
+            Future<List<AccountChange>> next = executor.submit(() -> deltaSync.sync(bank, credentials));
+            releaseFirst.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second = next.get(5, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertEquals(List.of(AccountChange.added(checking)), second);
+    }
+}
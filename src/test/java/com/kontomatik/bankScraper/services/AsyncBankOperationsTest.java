@@ -0,0 +1,177 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncBankOperationsTest {
+
+    private static final Credentials CREDENTIALS = new Credentials("user", "pass");
+    private static final List<Account> ACCOUNTS = List.of(
+            new Account("111", BigDecimal.ONE, "eKonto"),
+            new Account("222", BigDecimal.TWO, "eKonto"),
+            new Account("333", BigDecimal.TEN, "eKonto"));
+
+    @Test
+    void shouldCompleteFutureWithAccounts() throws Exception {
+        // given
+        StreamingBank bank = new StreamingBank();
+
+        // when
+        CompletableFuture<List<Account>> accounts = bank.fetchAccountDataAsync(CREDENTIALS);
+
+        // then
+        assertEquals(ACCOUNTS, accounts.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldInterruptFlowWhenFutureIsCancelled() throws InterruptedException {
+        // given
+        StreamingBank bank = new StreamingBank();
+        bank.blockAfter = 0;
+        CompletableFuture<List<Account>> accounts = bank.fetchAccountDataAsync(CREDENTIALS);
+        assertTrue(bank.blocked.await(5, TimeUnit.SECONDS));
+
+        // when
+        accounts.cancel(true);
+
+        // then
+        assertTrue(bank.interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(accounts.isCancelled());
+    }
+
+    @Test
+    void shouldEmitNoMoreAccountsThanRequested() throws InterruptedException {
+        // given
+        StreamingBank bank = new StreamingBank();
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+
+        // when
+        bank.publishAccountData(CREDENTIALS).subscribe(subscriber);
+        assertTrue(subscriber.firstAccount.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        List<Account> beforeMoreDemand = List.copyOf(subscriber.accounts);
+        subscriber.subscription.request(2);
+
+        // then
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertEquals(ACCOUNTS.subList(0, 1), beforeMoreDemand);
+        assertEquals(ACCOUNTS, subscriber.accounts);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void shouldAbortFlowWhenSubscriptionIsCancelled() throws InterruptedException {
+        // given
+        StreamingBank bank = new StreamingBank();
+        bank.blockAfter = 1;
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        bank.publishAccountData(CREDENTIALS).subscribe(subscriber);
+        assertTrue(bank.blocked.await(5, TimeUnit.SECONDS));
+
+        // when
+        subscriber.subscription.cancel();
+
+        // then
+        assertTrue(bank.interrupted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(ACCOUNTS.subList(0, 1), subscriber.accounts);
+        assertEquals(1, subscriber.done.getCount());
+    }
+
+    @Test
+    void shouldSignalErrorForNonPositiveRequest() throws InterruptedException {
+        // given
+        StreamingBank bank = new StreamingBank();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+
+        // when
+        bank.publishAccountData(CREDENTIALS).subscribe(subscriber);
+
+        // then
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        assertTrue(subscriber.accounts.isEmpty());
+    }
+
+    private static final class StreamingBank implements BankOperationsService {
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private int blockAfter = -1;
+
+        @Override
+        public List<Account> fetchAccountData(Credentials credentials) {
+            List<Account> accounts = new CopyOnWriteArrayList<>();
+            streamAccountData(credentials, ScrapeListener.NONE, accounts::add);
+            return List.copyOf(accounts);
+        }
+
+        @Override
+        public void streamAccountData(Credentials credentials, ScrapeListener listener, Consumer<Account> sink) {
+            for (int i = 0; i < ACCOUNTS.size(); i++) {
+                if (i == blockAfter) {
+                    blocked.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw new IllegalStateException("Interrupted");
+                    }
+                }
+                sink.accept(ACCOUNTS.get(i));
+            }
+        }
+
+        @Override
+        public String bankHost() {
+            return "mbank.example";
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<Account> {
+        private final long initialDemand;
+        private final List<Account> accounts = new CopyOnWriteArrayList<>();
+        private final CountDownLatch firstAccount = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(Account account) {
+            accounts.add(account);
+            firstAccount.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
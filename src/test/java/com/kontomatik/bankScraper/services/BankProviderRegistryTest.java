@@ -0,0 +1,129 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.AuthenticationException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.MultiBankResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankProviderRegistryTest {
+
+    private static final Credentials CREDENTIALS = new Credentials("user", "pass");
+
+    @Test
+    void shouldFetchBanksConcurrentlyAndMergeInRequestOrder() {
+        // given
+        BankProviderRegistry registry = new BankProviderRegistry(List.of(
+                new StubBank("mbank", slowly(300, "111")),
+                new StubBank("pko", slowly(300, "222")),
+                new StubBank("ing", slowly(300, "333"))), "mbank", Duration.ofSeconds(5));
+        Map<String, Credentials> credentials = new LinkedHashMap<>();
+        credentials.put("ing", CREDENTIALS);
+        credentials.put("mbank", CREDENTIALS);
+        credentials.put("pko", CREDENTIALS);
+
+        // when
+        long start = System.nanoTime();
+        MultiBankResult result = registry.fetchAll(credentials);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then
+        assertTrue(result.succeeded());
+        assertEquals(List.of("333", "111", "222"), result.accounts().stream().map(Account::accountNumber).toList());
+        assertTrue(elapsedMillis < 800, "took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void shouldKeepAccountsOfOtherBanksWhenOneFails() {
+        // given
+        BankProviderRegistry registry = new BankProviderRegistry(List.of(
+                new StubBank("mbank", slowly(0, "111")),
+                new StubBank("pko", credentials -> {
+                    throw new AuthenticationException("Login failed");
+                })), "mbank", Duration.ofSeconds(5));
+
+        // when
+        MultiBankResult result = registry.fetchAll(Map.of("mbank", CREDENTIALS, "pko", CREDENTIALS));
+
+        // then
+        assertFalse(result.succeeded());
+        assertEquals(List.of("111"), result.accounts().stream().map(Account::accountNumber).toList());
+        assertInstanceOf(AuthenticationException.class, result.failures().get("pko"));
+    }
+
+    @Test
+    void shouldCancelBankThatOverrunsTheTimeout() throws InterruptedException {
+        // given
+        CountDownLatch interrupted = new CountDownLatch(1);
+        BankProviderRegistry registry = new BankProviderRegistry(List.of(
+                new StubBank("mbank", slowly(0, "111")),
+                new StubBank("pko", credentials -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return List.of();
+                })), "mbank", Duration.ofMillis(200));
+
+        // when
+        MultiBankResult result = registry.fetchAll(Map.of("mbank", CREDENTIALS, "pko", CREDENTIALS));
+
+        // then
+        assertEquals(List.of("111"), result.accounts().stream().map(Account::accountNumber).toList());
+        assertInstanceOf(TimeoutException.class, result.failures().get("pko"));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldRejectUnknownAndDuplicateBanks() {
+        // given
+        BankOperationsService mbank = new StubBank("mbank", slowly(0));
+        BankProviderRegistry registry = new BankProviderRegistry(List.of(mbank), "mbank", Duration.ofSeconds(5));
+
+        // when & then
+        assertSame(mbank, registry.defaultProvider());
+        assertThrows(NoSuchElementException.class, () -> registry.fetchAll(Map.of("pko", CREDENTIALS)));
+        assertThrows(IllegalStateException.class,
+                () -> new BankProviderRegistry(List.of(mbank, mbank), "mbank", Duration.ofSeconds(5)));
+    }
+
+    private static Function<Credentials, List<Account>> slowly(long millis, String... accountNumbers) {
+        return credentials -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Arrays.stream(accountNumbers)
+                    .map(number -> new Account(number, BigDecimal.TEN, "eKonto"))
+                    .toList();
+        };
+    }
+
+    private record StubBank(String bankId, Function<Credentials, List<Account>> behaviour) implements BankOperationsService {
+        @Override
+        public List<Account> fetchAccountData(Credentials credentials) {
+            return behaviour.apply(credentials);
+        }
+
+        @Override
+        public String bankHost() {
+            return bankId + ".example";
+        }
+    }
+}
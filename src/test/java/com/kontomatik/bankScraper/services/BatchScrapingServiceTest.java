@@ -0,0 +1,152 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.AuthenticationException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.models.ScrapeResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchScrapingServiceTest {
+
+    private final BatchScrapingService batchScrapingService = new BatchScrapingService(2);
+
+    @Test
+    void shouldReturnResultPerCustomerInInputOrder() {
+        // given
+        BankOperationsService bank = new StubBank(credentials -> {
+            if (credentials.username().equals("broken")) {
+                throw new AuthenticationException("Failed to initialize 2FA");
+            }
+            return List.of(new Account(credentials.username(), BigDecimal.TEN, "eKonto"));
+        });
+        List<Credentials> customers = List.of(
+                new Credentials("first", "pass"),
+                new Credentials("broken", "pass"),
+                new Credentials("third", "pass"));
+
+        // when
+        List<ScrapeResult> results = batchScrapingService.scrapeAll(bank, customers);
+
+        // then
+        assertEquals(List.of("first", "broken", "third"), results.stream().map(ScrapeResult::username).toList());
+        assertTrue(results.get(0).succeeded());
+        assertEquals("first", results.get(0).accounts().get(0).accountNumber());
+        assertFalse(results.get(1).succeeded());
+        assertEquals("Failed to initialize 2FA", results.get(1).failure().getMessage());
+        assertTrue(results.get(2).succeeded());
+    }
+
+    @Test
+    void shouldNotExceedConcurrencyLimitPerHost() {
+        // given
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        BankOperationsService bank = new StubBank(credentials -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return List.of();
+        });
+        List<Credentials> customers = IntStream.range(0, 20)
+                .mapToObj(i -> new Credentials("user" + i, "pass"))
+                .toList();
+
+        // when
+        batchScrapingService.scrapeAll(bank, customers);
+
+        // then
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void shouldReportProgressForEveryJob() {
+        // given
+        BankOperationsService bank = new StubBank(credentials -> List.of());
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger lastFinished = new AtomicInteger();
+        BatchProgressListener listener = new BatchProgressListener() {
+            @Override
+            public void onJobStarted(String username) {
+                started.incrementAndGet();
+            }
+
+            @Override
+            public void onJobFinished(ScrapeResult result, int finished, int total) {
+                lastFinished.accumulateAndGet(finished, Math::max);
+                assertEquals(5, total);
+            }
+        };
+        List<Credentials> customers = IntStream.range(0, 5)
+                .mapToObj(i -> new Credentials("user" + i, "pass"))
+                .toList();
+
+        // when
+        batchScrapingService.scrapeAll(bank, customers, listener);
+
+        // then
+        assertEquals(5, started.get());
+        assertEquals(5, lastFinished.get());
+    }
+
+    @Test
+    void shouldKeepBatchResultWhenJobFailsOrListenerThrows() {
+        // given
+        BankOperationsService bank = new StubBank(credentials -> {
+            if (credentials.username().equals("broken")) {
+                throw new IllegalStateException("Unexpected response");
+            }
+            return List.of();
+        });
+        BatchProgressListener listener = new BatchProgressListener() {
+            @Override
+            public void onJobFinished(ScrapeResult result, int finished, int total) {
+                throw new IllegalStateException("Listener failed");
+            }
+        };
+        List<Credentials> customers = List.of(new Credentials("first", "pass"), new Credentials("broken", "pass"));
+
+        // when
+        List<ScrapeResult> results = batchScrapingService.scrapeAll(bank, customers, listener);
+
+        // then
+        assertTrue(results.get(0).succeeded());
+        assertFalse(results.get(1).succeeded());
+        assertInstanceOf(IllegalStateException.class, results.get(1).failure());
+    }
+
+    @Test
+    void shouldPropagateErrorFromJob() {
+        // given
+        BankOperationsService bank = new StubBank(credentials -> {
+            throw new StackOverflowError();
+        });
+        List<Credentials> customers = List.of(new Credentials("broken", "pass"));
+
+        // when & then
+        assertThrows(StackOverflowError.class, () -> batchScrapingService.scrapeAll(bank, customers));
+    }
+
+    private record StubBank(Function<Credentials, List<Account>> behaviour) implements BankOperationsService {
+        @Override
+        public List<Account> fetchAccountData(Credentials credentials) {
+            return behaviour.apply(credentials);
+        }
+
+        @Override
+        public String bankHost() {
+            return "online.mbank.pl";
+        }
+    }
+}
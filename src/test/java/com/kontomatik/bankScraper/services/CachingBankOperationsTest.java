@@ -0,0 +1,252 @@
+package com.kontomatik.bankScraper.services;
+
+import com.kontomatik.bankScraper.exceptions.AuthenticationException;
+import com.kontomatik.bankScraper.exceptions.ScrapingException;
+import com.kontomatik.bankScraper.models.Account;
+import com.kontomatik.bankScraper.models.Credentials;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingBankOperationsTest {
+
+    private static final Credentials CREDENTIALS = new Credentials("user", "pass");
+
+    @Test
+    void shouldShareOneFlightBetweenConcurrentCallers() throws Exception {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        CountingBank bank = new CountingBank(release);
+        CachingBankOperations caching = caching(bank, Duration.ofMinutes(1));
+        List<Future<List<Account>>> results = new ArrayList<>();
+        AtomicInteger twoFactorPrompts = new AtomicInteger();
+        ScrapeListener listener = new ScrapeListener() {
+            @Override
+            public void onTwoFactorAuthStarted() {
+                twoFactorPrompts.incrementAndGet();
+            }
+        };
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(() -> caching.fetchAccountData(CREDENTIALS, listener)));
+            }
+            assertTrue(bank.started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<List<Account>> result : results) {
+                assertEquals("111", result.get(5, TimeUnit.SECONDS).get(0).accountNumber());
+            }
+        }
+
+        // then
+        assertEquals(1, bank.calls.get());
+        assertEquals(5, twoFactorPrompts.get());
+    }
+
+    @Test
+    void shouldNotFailSharedFlightWhenOneCallersListenerThrows() throws Exception {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        CountingBank bank = new CountingBank(release);
+        CachingBankOperations caching = caching(bank, Duration.ofMinutes(1));
+        AtomicInteger twoFactorPrompts = new AtomicInteger();
+        ScrapeListener throwing = new ScrapeListener() {
+            @Override
+            public void onTwoFactorAuthStarted() {
+                throw new IllegalStateException("Listener failed");
+            }
+        };
+        ScrapeListener counting = new ScrapeListener() {
+            @Override
+            public void onTwoFactorAuthStarted() {
+                twoFactorPrompts.incrementAndGet();
+            }
+        };
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<Account>> first = executor.submit(() -> caching.fetchAccountData(CREDENTIALS, throwing));
+            assertTrue(bank.started.await(5, TimeUnit.SECONDS));
+            Future<List<Account>> second = executor.submit(() -> caching.fetchAccountData(CREDENTIALS, counting));
+            Thread.sleep(200);
+            release.countDown();
+
+            // then
+            assertEquals("111", first.get(5, TimeUnit.SECONDS).get(0).accountNumber());
+            assertEquals("111", second.get(5, TimeUnit.SECONDS).get(0).accountNumber());
+        }
+        assertEquals(1, bank.calls.get());
+        assertEquals(1, twoFactorPrompts.get());
+    }
+
+    @Test
+    void shouldKeepFlightRunningForCallerStillWaiting() throws Exception {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        CountingBank bank = new CountingBank(release);
+        CachingBankOperations caching = caching(bank, Duration.ofMinutes(1));
+        CompletableFuture<List<Account>> cancelled = caching.fetchAccountDataAsync(CREDENTIALS);
+        CompletableFuture<List<Account>> waiting = caching.fetchAccountDataAsync(CREDENTIALS);
+        assertTrue(bank.started.await(5, TimeUnit.SECONDS));
+
+        // when
+        cancelled.cancel(true);
+        release.countDown();
+
+        // then
+        assertEquals("111", waiting.get(5, TimeUnit.SECONDS).get(0).accountNumber());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(1, bank.interrupted.getCount());
+        assertEquals(1, bank.calls.get());
+    }
+
+    @Test
+    void shouldInterruptFlightOnceEveryCallerCancelled() throws Exception {
+        // given
+        CountingBank bank = new CountingBank(new CountDownLatch(1));
+        CachingBankOperations caching = caching(bank, Duration.ofMinutes(1));
+        CompletableFuture<List<Account>> first = caching.fetchAccountDataAsync(CREDENTIALS);
+        CompletableFuture<List<Account>> second = caching.fetchAccountDataAsync(CREDENTIALS);
+        assertTrue(bank.started.await(5, TimeUnit.SECONDS));
+
+        // when
+        first.cancel(true);
+        second.cancel(true);
+
+        // then
+        assertTrue(bank.interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, caching.cachedEntries());
+    }
+
+    @Test
+    void shouldServeCachedAccountsUntilTheyExpire() throws InterruptedException {
+        // given
+        CountingBank bank = new CountingBank(new CountDownLatch(0));
+        CachingBankOperations caching = caching(bank, Duration.ofMillis(200));
+
+        // when
+        caching.fetchAccountData(CREDENTIALS);
+        caching.fetchAccountData(CREDENTIALS);
+        int callsWhileCached = bank.calls.get();
+        Thread.sleep(300);
+        caching.fetchAccountData(CREDENTIALS);
+
+        // then
+        assertEquals(1, callsWhileCached);
+        assertEquals(2, bank.calls.get());
+    }
+
+    @Test
+    void shouldNotServeCachedAccountsForDifferentPassword() {
+        // given
+        CountingBank bank = new CountingBank(new CountDownLatch(0));
+        CachingBankOperations caching = caching(bank, Duration.ofMinutes(1));
+
+        // when
+        caching.fetchAccountData(CREDENTIALS);
+        caching.fetchAccountData(new Credentials("user", "guess"));
+
+        // then
+        assertEquals(2, bank.calls.get());
+    }
+
+    @Test
+    void shouldNotCacheFailures() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+        BankOperationsService failing = new BankOperationsService() {
+            @Override
+            public List<Account> fetchAccountData(Credentials credentials) {
+                calls.incrementAndGet();
+                throw new AuthenticationException("Login failed");
+            }
+
+            @Override
+            public String bankHost() {
+                return "mbank.example";
+            }
+        };
+        CachingBankOperations caching = caching(failing, Duration.ofMinutes(1));
+
+        // when & then
+        assertThrows(AuthenticationException.class, () -> caching.fetchAccountData(CREDENTIALS));
+        assertThrows(AuthenticationException.class, () -> caching.fetchAccountData(CREDENTIALS));
+        assertEquals(2, calls.get());
+        assertEquals(0, caching.cachedEntries());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedCustomerOverMaxEntries() {
+        // given
+        CountingBank bank = new CountingBank(new CountDownLatch(0));
+        CachingBankOperations caching = new CachingBankOperations(bank, Duration.ofMinutes(1), 2, Clock.systemUTC(), new SimpleMeterRegistry(), Tracer.discarding());
+
+        // when
+        caching.fetchAccountData(new Credentials("a", "pass"));
+        caching.fetchAccountData(new Credentials("b", "pass"));
+        caching.fetchAccountData(new Credentials("a", "pass"));
+        caching.fetchAccountData(new Credentials("c", "pass"));
+        caching.fetchAccountData(new Credentials("a", "pass"));
+        caching.fetchAccountData(new Credentials("b", "pass"));
+
+        // then
+        assertEquals(2, caching.cachedEntries());
+        assertEquals(4, bank.calls.get());
+    }
+
+    private static CachingBankOperations caching(BankOperationsService bank, Duration ttl) {
+        return new CachingBankOperations(bank, ttl, 100, Clock.systemUTC(), new SimpleMeterRegistry(), Tracer.discarding());
+    }
+
+    private static final class CountingBank implements BankOperationsService {
+        private final CountDownLatch release;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingBank(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public List<Account> fetchAccountData(Credentials credentials) {
+            return fetchAccountData(credentials, ScrapeListener.NONE);
+        }
+
+        @Override
+        public List<Account> fetchAccountData(Credentials credentials, ScrapeListener listener) {
+            calls.incrementAndGet();
+            listener.onTwoFactorAuthStarted();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new ScrapingException("Interrupted");
+            }
+            return List.of(new Account("111", BigDecimal.TEN, "eKonto"));
+        }
+
+        @Override
+        public String bankHost() {
+            return "mbank.example";
+        }
+    }
+}
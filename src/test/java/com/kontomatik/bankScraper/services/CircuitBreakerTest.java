@@ -0,0 +1,66 @@
+package com.kontomatik.bankScraper.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(0.5, 4, 4, 1_000, 2, nanoTime::get);
+
+    @Test
+    void shouldOpenWhenFailureRateReachesThreshold() {
+        // given
+        recordCalls(false, true, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        // when
+        recordCalls(true);
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldCloseAfterSuccessfulTrialCalls() {
+        // given
+        recordCalls(true, true, true, true);
+        nanoTime.addAndGet(1_000);
+
+        // when
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onResult(false);
+        breaker.onResult(false);
+
+        // then
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void shouldReopenWhenTrialCallFails() {
+        // given
+        recordCalls(true, true, true, true);
+        nanoTime.addAndGet(1_000);
+
+        // when
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(true);
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private void recordCalls(boolean... failures) {
+        for (boolean failure : failures) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(failure);
+        }
+    }
+}
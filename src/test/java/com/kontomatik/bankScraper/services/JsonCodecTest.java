@@ -0,0 +1,81 @@
+package com.kontomatik.bankScraper.services;
+
+import com.google.gson.Gson;
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonCodecTest {
+
+    private final AtomicInteger adapterReads = new AtomicInteger();
+    private final JsonCodec codec = new JsonCodec(List.of(JsonAdapter.stringField(Token.class, "token", value -> {
+        adapterReads.incrementAndGet();
+        return new Token(value);
+    })), new Gson());
+
+    @Test
+    void shouldDecodeOnlyTheAdaptedFieldAndSkipTheRest() throws IOException, ResponseHandlingException {
+        // given
+        String body = """
+                {"menu":{"items":[{"id":1,"children":[null,true,"x"]}]},"token":"abc","footer":[1.5,{"a":"b"}]}
+                """;
+
+        // when
+        Token token = codec.decode(new StringReader(body), Token.class);
+
+        // then
+        assertEquals(new Token("abc"), token);
+        assertEquals(1, adapterReads.get());
+    }
+
+    @Test
+    void shouldCoerceScalarsLikeGson() throws IOException, ResponseHandlingException {
+        // when & then
+        assertEquals(new Token("42"), codec.decode(new StringReader("{\"token\":42}"), Token.class));
+        assertEquals(new Token("true"), codec.decode(new StringReader("{\"token\":true}"), Token.class));
+        assertEquals(new Token(null), codec.decode(new StringReader("{\"token\":null}"), Token.class));
+        assertNull(codec.decode(new StringReader(""), Token.class));
+        assertNull(codec.decode(new StringReader("null"), Token.class));
+    }
+
+    @Test
+    void shouldRejectMalformedAndTrailingContent() {
+        // when & then
+        assertThrows(ResponseHandlingException.class, () -> codec.decode(new StringReader("{\"token\":{}}"), Token.class));
+        assertThrows(ResponseHandlingException.class, () -> codec.decode(new StringReader("{\"token\":\"a\"} {}"), Token.class));
+        assertThrows(ResponseHandlingException.class, () -> codec.decode(new StringReader("[1,2]"), Token.class));
+    }
+
+    @Test
+    void shouldFallBackToReflectiveBindingForUnregisteredTypes() throws IOException, ResponseHandlingException {
+        // when
+        Other other = codec.decode(new StringReader("{\"name\":\"n\",\"count\":3}"), Other.class);
+
+        // then
+        assertEquals(new Other("n", 3), other);
+        assertEquals(0, adapterReads.get());
+    }
+
+    @Test
+    void shouldRejectTwoAdaptersForOneType() {
+        // given
+        List<JsonAdapter<?>> adapters = List.of(
+                JsonAdapter.stringField(Token.class, "token", Token::new),
+                JsonAdapter.stringField(Token.class, "other", Token::new));
+
+        // when & then
+        assertThrows(IllegalStateException.class, () -> new JsonCodec(adapters, new Gson()));
+    }
+
+    record Token(String token) {
+    }
+
+    record Other(String name, int count) {
+    }
+}
@@ -2,6 +2,11 @@ package com.kontomatik.bankScraper.services;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.kontomatik.bankScraper.mbank.RequestParams;
+import com.kontomatik.bankScraper.exceptions.RequestRejectedException;
+import com.kontomatik.bankScraper.exceptions.ResponseHandlingException;
+import com.kontomatik.bankScraper.tracing.Tracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.jsoup.Connection;
 import org.jsoup.UnsupportedMimeTypeException;
 import org.junit.jupiter.api.AfterEach;
@@ -15,22 +20,49 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @ExtendWith(SpringExtension.class)
-@ContextConfiguration(classes = {JsoupClient.class})
+@ContextConfiguration(classes = {JsoupClient.class, HostGuards.class, PooledHttpTransport.class, SimpleMeterRegistry.class, Tracer.class})
 @TestPropertySource("classpath:application-test.properties")
 class JsoupClientTest {
 
+    private static final RetryPolicy RETRY = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(20), 2);
+    private static final RequestParams IGNORE_CONTENT_TYPE = new RequestParams.Builder().ignoreContentType(true).build();
+
     @Autowired
     private JsoupClient jsoupClient;
 
+    @Autowired
+    private HttpTransport transport;
+
+    @Autowired
+    private HostGuards hostGuards;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private WireMockServer wireMockServer;
 
     @Value("${mbank.wiremock.port}")
@@ -226,4 +258,302 @@ class JsoupClientTest {
         assertThrows(UnsupportedMimeTypeException.class,
                 () -> jsoupClient.sendRequest(baseUrl + "/emptyJsonResponse", Connection.Method.GET, params));
     }
+
+    @Test
+    void shouldFailFastOnceCircuitOpensAfterServerErrors() throws IOException {
+        // given
+        stubFor(get(urlEqualTo("/unavailable"))
+                .willReturn(aResponse().withStatus(503)));
+        String url = "http://localhost:" + wireMockPort + "/unavailable";
+        RequestParams params = new RequestParams.Builder()
+                .ignoreContentType(true)
+                .build();
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            jsoupClient.sendRequest(url, Connection.Method.GET, params).close();
+        }
+
+        // then
+        assertThrows(RequestRejectedException.class, () -> jsoupClient.sendRequest(url, Connection.Method.GET, params));
+        verify(10, getRequestedFor(urlEqualTo("/unavailable")));
+        assertEquals(1, meterRegistry.get("bank.http.rejected")
+                .tags("host", "localhost", "reason", "circuit_open").counter().count());
+        assertEquals(1, meterRegistry.get("bank.http.circuit.state")
+                .tags("host", "localhost").gauge().value());
+    }
+
+    @Test
+    void shouldHoldBulkheadSlotUntilResponseBodyIsClosed() throws IOException {
+        // given
+        HostGuards singleSlot = new HostGuards(meterRegistry, 100, 100, 1000, 1, 50, 0.5, 20, 10, 30000, 3);
+        JsoupClient client = new JsoupClient(transport, meterRegistry, singleSlot, Tracer.discarding(), false, 0.95, 20, 50);
+        stubFor(get(urlEqualTo("/streamed")).willReturn(aResponse().withStatus(200).withBody("accounts")));
+        String url = baseUrl + "/streamed";
+        TransportResponse streaming = client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE);
+
+        // when & then
+        assertThrows(RequestRejectedException.class, () -> client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE));
+        streaming.close();
+        try (TransportResponse next = client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE)) {
+            assertEquals("accounts", next.body());
+        }
+        client.shutdown();
+    }
+
+    @Test
+    void shouldNotCountOwnInterruptAsHalfOpenTrialSuccess() throws Exception {
+        // given
+        HostGuards guards = new HostGuards(meterRegistry, 100, 100, 1000, 4, 1000, 0.5, 2, 2, 50, 1);
+        AtomicBoolean interruptNext = new AtomicBoolean();
+        HttpTransport transport = (url, method, params) -> {
+            if (interruptNext.get()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request was interrupted");
+            }
+            return new TransportResponse(503, Map.of(), List.of(), InputStream.nullInputStream(), StandardCharsets.UTF_8);
+        };
+        JsoupClient client = new JsoupClient(transport, meterRegistry, guards, Tracer.discarding(), false, 0.95, 20, 50);
+        String url = "http://cancelled.example/accounts";
+        for (int i = 0; i < 2; i++) {
+            client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE).close();
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        interruptNext.set(true);
+
+        // when
+        assertThrows(InterruptedIOException.class, () -> client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE));
+        Thread.interrupted();
+
+        // then
+        assertEquals(CircuitBreaker.State.HALF_OPEN.ordinal(), meterRegistry.get("bank.http.circuit.state")
+                .tags("host", "cancelled.example").gauge().value());
+        client.shutdown();
+    }
+
+    @Test
+    void shouldNotSpendRateBudgetOnCallRejectedByBulkhead() throws IOException {
+        // given
+        HostGuards guards = new HostGuards(meterRegistry, 0.001, 2, 0, 1, 0, 0.5, 20, 10, 30000, 3);
+        HttpTransport transport = (url, method, params) ->
+                new TransportResponse(200, Map.of(), List.of(), InputStream.nullInputStream(), StandardCharsets.UTF_8);
+        JsoupClient client = new JsoupClient(transport, meterRegistry, guards, Tracer.discarding(), false, 0.95, 20, 50);
+        String url = "http://busy.example/accounts";
+        TransportResponse holding = client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE);
+
+        // when
+        assertThrows(RequestRejectedException.class, () -> client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE));
+        holding.close();
+
+        // then
+        try (TransportResponse next = client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE)) {
+            assertEquals(200, next.statusCode());
+        }
+        assertEquals(1, meterRegistry.get("bank.http.rejected")
+                .tags("host", "busy.example", "reason", "bulkhead_full").counter().count());
+        client.shutdown();
+    }
+
+    @Test
+    void shouldCountBodyReadFailureAgainstCircuitBreaker() throws IOException {
+        // given
+        HostGuards guards = new HostGuards(meterRegistry, 100, 100, 1000, 4, 1000, 0.5, 2, 2, 30000, 1);
+        HttpTransport resetMidBody = (url, method, params) -> new TransportResponse(200, Map.of(), List.of(),
+                new SequenceInputStream(new ByteArrayInputStream("[{\"accountNumber\"".getBytes()), new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new SocketException("Connection reset");
+                    }
+                }), StandardCharsets.UTF_8);
+        JsoupClient client = new JsoupClient(resetMidBody, meterRegistry, guards, Tracer.discarding(), false, 0.95, 20, 50);
+        String url = "http://reset.example/accounts";
+
+        // when
+        for (int i = 0; i < 2; i++) {
+            try (TransportResponse response = client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE)) {
+                assertEquals(200, response.statusCode());
+                assertThrows(SocketException.class, response::body);
+            }
+        }
+
+        // then
+        assertThrows(RequestRejectedException.class, () -> client.sendRequest(url, Connection.Method.GET, IGNORE_CONTENT_TYPE));
+        client.shutdown();
+    }
+
+    @Test
+    void shouldRetryIdempotentCallAfterTransientStatus() throws IOException {
+        // given
+        stubFor(get(urlEqualTo("/flaky")).inScenario("flaky")
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlEqualTo("/flaky")).inScenario("flaky").whenScenarioStateIs("recovered")
+                .willReturn(aResponse().withStatus(200)));
+        Endpoint endpoint = Endpoint.idempotent("flaky", Connection.Method.GET, RETRY);
+
+        // when
+        int status = jsoupClient.sendRequest(endpoint, baseUrl + "/flaky", IGNORE_CONTENT_TYPE).statusCode();
+
+        // then
+        assertEquals(200, status);
+        verify(2, getRequestedFor(urlEqualTo("/flaky")));
+        assertEquals(1, meterRegistry.get("bank.http.retries").tags("endpoint", "flaky").counter().count());
+    }
+
+    @Test
+    void shouldNotRepeatNonIdempotentCallThatReachedTheBank() throws IOException {
+        // given
+        stubFor(post(urlEqualTo("/init")).willReturn(aResponse().withStatus(503)));
+        Endpoint endpoint = Endpoint.nonIdempotent("init", Connection.Method.POST, RETRY);
+
+        // when
+        int status = jsoupClient.sendRequest(endpoint, baseUrl + "/init", IGNORE_CONTENT_TYPE).statusCode();
+
+        // then
+        assertEquals(503, status);
+        verify(1, postRequestedFor(urlEqualTo("/init")));
+    }
+
+    @Test
+    void shouldRetryNonIdempotentCallThatNeverConnected() {
+        // given
+        Endpoint endpoint = Endpoint.nonIdempotent("unreachable", Connection.Method.POST, RETRY);
+
+        // when & then
+        assertThrows(ConnectException.class,
+                () -> jsoupClient.sendRequest(endpoint, "http://127.0.0.1:1/init", IGNORE_CONTENT_TYPE));
+        assertEquals(2, meterRegistry.get("bank.http.retries").tags("endpoint", "unreachable").counter().count());
+    }
+
+    @Test
+    void shouldRetryIdempotentCallAfterReadTimeout() throws IOException {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+        HttpTransport slowOnce = (url, method, params) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            return new TransportResponse(200, Map.of(), List.of(), InputStream.nullInputStream(), StandardCharsets.UTF_8);
+        };
+        JsoupClient client = new JsoupClient(slowOnce, meterRegistry, hostGuards, Tracer.discarding(), false, 0.95, 20, 50);
+        Endpoint endpoint = Endpoint.idempotent("slow", Connection.Method.GET, RETRY);
+
+        // when
+        int status = client.sendRequest(endpoint, "http://slow.example/accounts", IGNORE_CONTENT_TYPE).statusCode();
+
+        // then
+        assertEquals(200, status);
+        assertEquals(2, calls.get());
+        client.shutdown();
+    }
+
+    @Test
+    void shouldRepeatIdempotentStepWhenBodyBreaksOff() throws IOException, ResponseHandlingException {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+        HttpTransport resetOnce = (url, method, params) -> {
+            InputStream body = new ByteArrayInputStream("[1,2,3]".getBytes());
+            if (calls.incrementAndGet() == 1) {
+                body = new SequenceInputStream(new ByteArrayInputStream("[1,".getBytes()), new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new SocketException("Connection reset");
+                    }
+                });
+            }
+            return new TransportResponse(200, Map.of(), List.of(), body, StandardCharsets.UTF_8);
+        };
+        JsoupClient client = new JsoupClient(resetOnce, meterRegistry, hostGuards, Tracer.discarding(), false, 0.95, 20, 50);
+        Endpoint endpoint = Endpoint.idempotent("reset", Connection.Method.GET, RETRY);
+
+        // when
+        String body = client.exchange(endpoint, "http://reset.example/accounts", IGNORE_CONTENT_TYPE, TransportResponse::body);
+
+        // then
+        assertEquals("[1,2,3]", body);
+        assertEquals(1, meterRegistry.get("bank.http.retries").tags("endpoint", "reset").counter().count());
+        client.shutdown();
+    }
+
+    @Test
+    void shouldSpendOneAttemptBudgetAcrossSendAndBody() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+        HttpTransport unavailableThenReset = (url, method, params) -> {
+            if (calls.incrementAndGet() % 2 == 1) {
+                return new TransportResponse(503, Map.of(), List.of(), InputStream.nullInputStream(), StandardCharsets.UTF_8);
+            }
+            return new TransportResponse(200, Map.of(), List.of(), new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new SocketException("Connection reset");
+                }
+            }, StandardCharsets.UTF_8);
+        };
+        JsoupClient client = new JsoupClient(unavailableThenReset, meterRegistry, hostGuards, Tracer.discarding(), false, 0.95, 20, 50);
+        Endpoint endpoint = Endpoint.idempotent("budget", Connection.Method.GET, RETRY);
+
+        // when
+        int status = assertDoesNotThrow(() -> client.exchange(endpoint, "http://budget.example/accounts",
+                IGNORE_CONTENT_TYPE, TransportResponse::statusCode));
+
+        // then
+        assertEquals(503, status);
+        assertEquals(3, calls.get());
+        assertEquals(2, meterRegistry.get("bank.http.retries").tags("endpoint", "budget").counter().count());
+        client.shutdown();
+    }
+
+    @Test
+    void shouldNotRepeatNonIdempotentStepWhenBodyBreaksOff() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+        HttpTransport resetMidBody = (url, method, params) -> {
+            calls.incrementAndGet();
+            return new TransportResponse(200, Map.of(), List.of(), new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new SocketException("Connection reset");
+                }
+            }, StandardCharsets.UTF_8);
+        };
+        JsoupClient client = new JsoupClient(resetMidBody, meterRegistry, hostGuards, Tracer.discarding(), false, 0.95, 20, 50);
+        Endpoint endpoint = Endpoint.nonIdempotent("login", Connection.Method.POST, RETRY);
+
+        // when & then
+        assertThrows(SocketException.class,
+                () -> client.exchange(endpoint, "http://reset.example/login", IGNORE_CONTENT_TYPE, TransportResponse::body));
+        assertEquals(1, calls.get());
+        client.shutdown();
+    }
+
+    @Test
+    void shouldHedgeCallSlowerThanItsUsualLatency() throws IOException {
+        // given
+        JsoupClient hedgingClient = new JsoupClient(transport, meterRegistry, hostGuards, Tracer.discarding(), true, 0.9, 5, 50);
+        Endpoint endpoint = Endpoint.idempotent("hedged", Connection.Method.GET, RetryPolicy.NONE).withHedging();
+        stubFor(get(urlEqualTo("/usual")).willReturn(aResponse().withStatus(200)));
+        for (int i = 0; i < 5; i++) {
+            hedgingClient.sendRequest(endpoint, baseUrl + "/usual", IGNORE_CONTENT_TYPE).close();
+        }
+        stubFor(get(urlEqualTo("/tail")).inScenario("tail")
+                .willReturn(aResponse().withStatus(200).withBody("slow").withFixedDelay(3000))
+                .willSetStateTo("hedged"));
+        stubFor(get(urlEqualTo("/tail")).inScenario("tail").whenScenarioStateIs("hedged")
+                .willReturn(aResponse().withStatus(200).withBody("fast")));
+
+        // when
+        long start = System.nanoTime();
+        String body;
+        try (TransportResponse response = hedgingClient.sendRequest(endpoint, baseUrl + "/tail", IGNORE_CONTENT_TYPE)) {
+            body = response.body();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then
+        assertEquals("fast", body);
+        assertTrue(elapsedMillis < 2000, "took " + elapsedMillis + "ms");
+        assertEquals(1, meterRegistry.get("bank.http.hedges").tags("endpoint", "hedged").counter().count());
+        hedgingClient.shutdown();
+    }
 }
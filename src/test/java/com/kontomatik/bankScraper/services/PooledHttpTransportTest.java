@@ -0,0 +1,131 @@
+package com.kontomatik.bankScraper.services;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.kontomatik.bankScraper.exceptions.ResponseTooLargeException;
+import com.kontomatik.bankScraper.mbank.RequestParams;
+import org.jsoup.Connection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {PooledHttpTransport.class})
+@TestPropertySource(locations = "classpath:application-test.properties", properties = "http.response.maxBodySize.bytes=1024")
+class PooledHttpTransportTest {
+
+    @Autowired
+    private PooledHttpTransport transport;
+
+    private WireMockServer wireMockServer;
+
+    @Value("${mbank.wiremock.port}")
+    private Integer wireMockPort;
+
+    @Value("${mbank.base.url}")
+    private String baseUrl;
+
+    @Value("${userAgent}")
+    private String userAgent;
+
+    @BeforeEach
+    void setup() {
+        wireMockServer = new WireMockServer(wireMockPort);
+        wireMockServer.start();
+        configureFor("localhost", wireMockPort);
+    }
+
+    @AfterEach
+    void cleanup() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void shouldSendFormEncodedDataWithDefaultUserAgent() throws IOException {
+        stubFor(post(urlEqualTo("/form"))
+                .willReturn(aResponse().withStatus(200)));
+
+        RequestParams params = new RequestParams.Builder()
+                .ignoreContentType(true)
+                .data(Map.of("username", "jan kowalski"))
+                .build();
+        transport.execute(baseUrl + "/form", Connection.Method.POST, params);
+
+        verify(postRequestedFor(urlEqualTo("/form"))
+                .withHeader("Content-Type", containing("application/x-www-form-urlencoded"))
+                .withHeader("User-Agent", equalTo(userAgent))
+                .withRequestBody(equalTo("username=jan+kowalski")));
+    }
+
+    @Test
+    void shouldAppendDataToQueryStringForGet() throws IOException {
+        stubFor(get(urlPathEqualTo("/query"))
+                .willReturn(aResponse().withStatus(200)));
+
+        RequestParams params = new RequestParams.Builder()
+                .ignoreContentType(true)
+                .data(Map.of("TranId", "abc"))
+                .build();
+        transport.execute(baseUrl + "/query", Connection.Method.GET, params);
+
+        verify(getRequestedFor(urlEqualTo("/query?TranId=abc")));
+    }
+
+    @Test
+    void shouldDecompressGzippedBody() throws IOException {
+        var expectedBody = "{\"antiForgeryToken\":\"token\"}";
+        stubFor(get(urlEqualTo("/gzipped"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json; charset=utf-8")
+                        .withHeader("Content-Encoding", "gzip")
+                        .withBody(gzip(expectedBody))));
+
+        RequestParams params = new RequestParams.Builder()
+                .ignoreContentType(true)
+                .build();
+        var actual = transport.execute(baseUrl + "/gzipped", Connection.Method.GET, params).body();
+
+        assertEquals(expectedBody, actual);
+    }
+
+    @Test
+    void shouldRejectBodyAboveMaximumSize() {
+        stubFor(get(urlEqualTo("/large"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("x".repeat(2048))));
+
+        RequestParams params = new RequestParams.Builder()
+                .ignoreContentType(true)
+                .build();
+
+        assertThrows(ResponseTooLargeException.class,
+                () -> transport.execute(baseUrl + "/large", Connection.Method.GET, params).body());
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
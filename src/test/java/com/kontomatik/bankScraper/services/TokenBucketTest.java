@@ -0,0 +1,38 @@
+package com.kontomatik.bankScraper.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBucketTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final TokenBucket bucket = new TokenBucket(10, 2, nanoTime::get);
+
+    @Test
+    void shouldAllowBurstThenRejectWhenWaitIsTooLong() {
+        // when & then
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(TimeUnit.MILLISECONDS.toNanos(50)));
+    }
+
+    @Test
+    void shouldBookNextTokenWithinAllowedWait() {
+        // given
+        bucket.reserve(0);
+        bucket.reserve(0);
+
+        // when
+        long wait = bucket.reserve(TimeUnit.MILLISECONDS.toNanos(100));
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+
+        // then
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(0));
+    }
+}
@@ -0,0 +1,189 @@
+package com.kontomatik.bankScraper.store;
+
+import com.kontomatik.bankScraper.exceptions.SnapshotStoreException;
+import com.kontomatik.bankScraper.models.Account;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountSnapshotStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-07-01T10:00:00Z");
+
+    @TempDir
+    private Path directory;
+
+    private final Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    @Test
+    void shouldReturnLatestBalanceAndFullHistory() {
+        // given
+        AccountSnapshotStore store = open(4096, clock);
+
+        // when
+        store.append("alice", List.of(account("111", "100.00"), account("222", "5.10")));
+        store.append("alice", List.of(account("111", "120.50")));
+
+        // then
+        assertEquals(new BigDecimal("120.50"), store.latest("111").orElseThrow().account().balance());
+        assertEquals(List.of(new BigDecimal("100.00"), new BigDecimal("120.50")),
+                store.history("111").stream().map(stored -> stored.account().balance()).toList());
+        assertEquals("alice", store.latest("222").orElseThrow().customer());
+        assertEquals(NOW, store.latest("222").orElseThrow().scrapedAt());
+        assertTrue(store.latest("333").isEmpty());
+    }
+
+    @Test
+    void shouldRebuildIndexWhenReopened() {
+        // given
+        AccountSnapshotStore store = open(4096, clock);
+        store.append("alice", List.of(account("111", "100.00")));
+        store.append("bob", List.of(account("111", "99.99"), account("222", "-3.00")));
+        store.close();
+
+        // when
+        AccountSnapshotStore reopened = open(4096, clock);
+
+        // then
+        assertEquals(2, reopened.accountCount());
+        assertEquals(new BigDecimal("99.99"), reopened.latest("111").orElseThrow().account().balance());
+        assertEquals(new BigDecimal("-3.00"), reopened.latest("222").orElseThrow().account().balance());
+    }
+
+    @Test
+    void shouldDiscardTornRecordAndKeepAppending() throws IOException {
+        // given
+        AccountSnapshotStore store = open(4096, clock);
+        store.append("alice", List.of(account("111", "100.00")));
+        store.close();
+        Path segment = segmentFiles().getFirst();
+        int end = recordEnd(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end);
+            file.writeInt(40);
+            file.writeInt(0xdeadbeef);
+            file.write(new byte[]{1, 2, 3});
+        }
+
+        // when
+        AccountSnapshotStore recovered = open(4096, clock);
+        recovered.append("alice", List.of(account("111", "101.00")));
+        recovered.close();
+
+        // then
+        AccountSnapshotStore reopened = open(4096, clock);
+        assertEquals(List.of(new BigDecimal("100.00"), new BigDecimal("101.00")),
+                reopened.history("111").stream().map(stored -> stored.account().balance()).toList());
+    }
+
+    @Test
+    void shouldRollToNewSegmentWhenFull() throws IOException {
+        // given
+        AccountSnapshotStore store = open(128, clock);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            store.append("alice", List.of(account("acc" + i, i + ".00")));
+        }
+
+        // then
+        assertTrue(segmentFiles().size() > 1);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(new BigDecimal(i + ".00"), store.latest("acc" + i).orElseThrow().account().balance());
+        }
+    }
+
+    @Test
+    void shouldCompactExpiredRecordsButKeepLatestPerAccount() {
+        // given
+        AccountSnapshotStore store = open(128, clock);
+        for (int i = 0; i < 5; i++) {
+            store.append("alice", List.of(account("111", i + ".00"), account("222", "1.00")));
+        }
+        store.close();
+
+        // when
+        AccountSnapshotStore compacted = open(128, Clock.offset(clock, Duration.ofDays(2)));
+
+        // then
+        assertEquals(List.of(new BigDecimal("4.00")),
+                compacted.history("111").stream().map(stored -> stored.account().balance()).toList());
+        assertEquals(new BigDecimal("4.00"), compacted.latest("111").orElseThrow().account().balance());
+        assertEquals(new BigDecimal("1.00"), compacted.latest("222").orElseThrow().account().balance());
+        assertEquals(0, compacted.compact());
+    }
+
+    @Test
+    void shouldNotTouchDiskUntilFirstUse() throws IOException {
+        // given
+        Path storeDirectory = directory.resolve("lazy");
+        AccountSnapshotStore store = new AccountSnapshotStore(storeDirectory, 4096, Duration.ofDays(1), true, clock);
+
+        // when
+        store.close();
+        boolean createdBeforeUse = Files.exists(storeDirectory);
+        store.append("alice", List.of(account("111", "1.00")));
+
+        // then
+        assertFalse(createdBeforeUse);
+        assertEquals(1, segmentFiles(storeDirectory).size());
+    }
+
+    @Test
+    void shouldRejectWholeAppendWhenAnyRecordIsOversized() {
+        // given
+        AccountSnapshotStore store = open(128, clock);
+        Account oversized = new Account("222", BigDecimal.ONE, "x".repeat(200));
+
+        // when
+        assertThrows(SnapshotStoreException.class, () -> store.append("alice", List.of(account("111", "1.00"), oversized)));
+        store.close();
+
+        // then
+        assertTrue(store.latest("111").isEmpty());
+        assertTrue(open(128, clock).history("111").isEmpty());
+    }
+
+    private AccountSnapshotStore open(int segmentSize, Clock clock) {
+        return new AccountSnapshotStore(directory, segmentSize, Duration.ofDays(1), true, clock);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        return segmentFiles(directory);
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Segment::isSegmentFile).sorted().toList();
+        }
+    }
+
+    private static int recordEnd(Path segment) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int offset = 0;
+        int recordBytes;
+        while ((recordBytes = SnapshotRecords.validate(buffer, offset, bytes.length)) > 0) {
+            offset += recordBytes;
+        }
+        return offset;
+    }
+
+    private static Account account(String accountNumber, String balance) {
+        return new Account(accountNumber, new BigDecimal(balance), "Account " + accountNumber);
+    }
+}
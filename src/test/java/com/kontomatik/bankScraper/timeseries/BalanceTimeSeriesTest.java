@@ -0,0 +1,173 @@
+package com.kontomatik.bankScraper.timeseries;
+
+import com.kontomatik.bankScraper.models.Account;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceTimeSeriesTest {
+
+    private static final Instant START = Instant.parse("2024-07-01T00:00:00Z");
+
+    private final BalanceTimeSeries timeSeries = new BalanceTimeSeries(2, 8);
+
+    @Test
+    void shouldScanPointsWithinRangeAcrossBlocks() {
+        // given
+        for (int i = 0; i < 20; i++) {
+            timeSeries.record(START.plus(Duration.ofMinutes(15L * i)), List.of(new Account("111", new BigDecimal(i - 5 + ".25"), "eKonto")));
+        }
+        List<Long> balances = new ArrayList<>();
+
+        // when
+        timeSeries.scan("111", START.plus(Duration.ofMinutes(45)), START.plus(Duration.ofMinutes(15 * 12)),
+                (epochMillis, minorUnits) -> balances.add(minorUnits));
+
+        // then
+        assertEquals(List.of(-225L, -125L, 25L, 125L, 225L, 325L, 425L, 525L, 625L), balances);
+        assertEquals(20, timeSeries.pointCount("111"));
+    }
+
+    @Test
+    void shouldDownsampleToSameBucketsAsNaiveAggregation() {
+        // given
+        Random random = new Random(42);
+        List<long[]> points = new ArrayList<>();
+        long balance = 100_000;
+        Instant at = START;
+        for (int i = 0; i < 500; i++) {
+            at = at.plusSeconds(60 + random.nextInt(600));
+            balance += random.nextInt(3) == 0 ? random.nextInt(20_001) - 10_000 : 0;
+            timeSeries.record("111", at, timeSeries.fromMinorUnits(balance));
+            points.add(new long[]{at.toEpochMilli(), balance});
+        }
+        Instant from = START.plus(Duration.ofHours(5));
+        Instant to = START.plus(Duration.ofHours(30));
+
+        // when
+        List<BalanceBucket> buckets = timeSeries.downsample("111", from, to, Duration.ofHours(1));
+
+        // then
+        assertEquals(naiveBuckets(points, from.toEpochMilli(), to.toEpochMilli(), Duration.ofHours(1).toMillis()), buckets);
+    }
+
+    @Test
+    void shouldRejectOutOfOrderPointsAndSubMinorBalances() {
+        // given
+        timeSeries.record("111", START, new BigDecimal("1.00"));
+
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> timeSeries.record("111", START.minusSeconds(1), BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class, () -> timeSeries.record("111", START, new BigDecimal("1.005")));
+        assertEquals(100, timeSeries.toMinorUnits(new BigDecimal("1.0")));
+        assertEquals(new BigDecimal("-0.07"), timeSeries.fromMinorUnits(-7));
+    }
+
+    @Test
+    void shouldRoundTripThroughSaveAndLoad() throws IOException {
+        // given
+        for (int i = 0; i < 13; i++) {
+            timeSeries.record("111", START.plusSeconds(3600L * i), new BigDecimal(i + ".99"));
+            timeSeries.record("222", START.plusSeconds(3600L * i), new BigDecimal("-" + i + ".01"));
+        }
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        timeSeries.save(saved);
+
+        // when
+        BalanceTimeSeries loaded = new BalanceTimeSeries(2, 8);
+        loaded.load(new ByteArrayInputStream(saved.toByteArray()));
+        loaded.record("111", START.plusSeconds(3600L * 13), new BigDecimal("13.99"));
+
+        // then
+        List<Long> balances = new ArrayList<>();
+        loaded.scan("111", START, START.plus(Duration.ofDays(1)), (epochMillis, minorUnits) -> balances.add(minorUnits));
+        assertEquals(14, balances.size());
+        assertEquals(1399L, balances.getLast());
+        assertEquals(13, loaded.pointCount("222"));
+    }
+
+    @Test
+    void shouldStoreSteadyRefreshesInAFewBytesPerPoint() {
+        // given
+        BalanceTimeSeries steady = new BalanceTimeSeries(2, 256);
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal balance = new BigDecimal(i % 50 == 0 ? "1234.56" : "1250.00");
+            steady.record("111", START.plus(Duration.ofMinutes(10L * i)), balance);
+        }
+
+        // then
+        assertTrue(steady.encodedBytes() < 3 * 10_000, "encoded " + steady.encodedBytes() + " bytes");
+    }
+
+    @Test
+    void shouldGrowHeadBufferOnlyAsPointsArrive() {
+        // given
+        Series series = new Series(256);
+
+        // when
+        series.append(START.toEpochMilli(), 100);
+        int capacityForOnePoint = series.headCapacity();
+        for (int i = 1; i < 300; i++) {
+            series.append(START.toEpochMilli() + i, 100);
+        }
+
+        // then
+        assertTrue(capacityForOnePoint <= 4, "capacity " + capacityForOnePoint);
+        assertEquals(256, series.headCapacity());
+        assertEquals(1, series.blockCount());
+    }
+
+    @Test
+    void shouldNotFragmentSeriesAcrossSaveAndLoadCycles() throws IOException {
+        // given
+        Series series = new Series(8);
+
+        // when
+        for (int cycle = 0; cycle < 10; cycle++) {
+            series.append(START.toEpochMilli() + cycle, cycle);
+            ByteArrayOutputStream saved = new ByteArrayOutputStream();
+            series.writeTo(new DataOutputStream(saved));
+            series = new Series(8);
+            series.readFrom(new DataInputStream(new ByteArrayInputStream(saved.toByteArray())));
+        }
+
+        // then
+        assertEquals(10, series.pointCount());
+        assertEquals(1, series.blockCount());
+        List<Long> values = new ArrayList<>();
+        series.scan(Long.MIN_VALUE, Long.MAX_VALUE, (epochMillis, minorUnits) -> values.add(minorUnits));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), values);
+    }
+
+    private static List<BalanceBucket> naiveBuckets(List<long[]> points, long from, long to, long bucketMillis) {
+        List<BalanceBucket> buckets = new ArrayList<>();
+        for (long[] point : points) {
+            if (point[0] < from || point[0] >= to) {
+                continue;
+            }
+            long start = Math.floorDiv(point[0], bucketMillis) * bucketMillis;
+            BalanceBucket last = buckets.isEmpty() ? null : buckets.getLast();
+            if (last != null && last.start().toEpochMilli() == start) {
+                buckets.set(buckets.size() - 1, new BalanceBucket(last.start(), last.open(),
+                        Math.max(last.high(), point[1]), Math.min(last.low(), point[1]), point[1], last.count() + 1));
+            } else {
+                buckets.add(new BalanceBucket(Instant.ofEpochMilli(start), point[1], point[1], point[1], point[1], 1));
+            }
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,109 @@
+package com.kontomatik.bankScraper.tracing;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldLinkNestedAndHandedOverSpansUnderOneTrace() throws Exception {
+        // given
+        List<SpanData> exported = new CopyOnWriteArrayList<>();
+        Tracer tracer = new Tracer(exported::addAll, 16, 4);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        // when
+        Span session = tracer.startSpan("session", SpanKind.INTERNAL);
+        try (Scope ignored = tracer.activate(session)) {
+            Span step = tracer.startSpan("step", SpanKind.INTERNAL);
+            step.end();
+            Future<?> request = executor.submit(tracer.wrap(() -> tracer.startSpan("request", SpanKind.CLIENT).end()));
+            request.get();
+        }
+        session.end();
+        Span unrelated = tracer.startSpan("unrelated", SpanKind.INTERNAL);
+        unrelated.end();
+        tracer.close();
+        executor.shutdown();
+
+        // then
+        SpanData root = byName(exported, "session");
+        assertNull(root.parentSpanId());
+        assertEquals(root.spanId(), byName(exported, "step").parentSpanId());
+        assertEquals(root.spanId(), byName(exported, "request").parentSpanId());
+        assertEquals(root.traceId(), byName(exported, "request").traceId());
+        assertNotEquals(root.traceId(), byName(exported, "unrelated").traceId());
+        assertNull(tracer.current());
+    }
+
+    @Test
+    void shouldWriteSpansAsOtlpJsonLines() throws IOException {
+        // given
+        Path file = directory.resolve("traces/spans.jsonl");
+        Tracer tracer = new Tracer("file", file.toString(), "", "bankScraper", 16, 16);
+
+        // when
+        Span span = tracer.startSpan("GET /accounts", SpanKind.CLIENT)
+                .setAttribute("url.template", "/accounts")
+                .setAttribute("http.response.status_code", 503)
+                .setAttribute("session.cached", true)
+                .recordError("HTTP 503");
+        span.end();
+        tracer.close();
+
+        // then
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1, lines.size());
+        JsonObject resourceSpans = JsonParser.parseString(lines.get(0)).getAsJsonObject()
+                .getAsJsonArray("resourceSpans").get(0).getAsJsonObject();
+        assertEquals("bankScraper", resourceSpans.getAsJsonObject("resource").getAsJsonArray("attributes")
+                .get(0).getAsJsonObject().getAsJsonObject("value").get("stringValue").getAsString());
+        JsonObject exported = resourceSpans.getAsJsonArray("scopeSpans").get(0).getAsJsonObject()
+                .getAsJsonArray("spans").get(0).getAsJsonObject();
+        assertEquals(span.traceId(), exported.get("traceId").getAsString());
+        assertEquals(32, exported.get("traceId").getAsString().length());
+        assertEquals(16, exported.get("spanId").getAsString().length());
+        assertFalse(exported.has("parentSpanId"));
+        assertEquals(3, exported.get("kind").getAsInt());
+        assertTrue(Long.parseLong(exported.get("endTimeUnixNano").getAsString())
+                >= Long.parseLong(exported.get("startTimeUnixNano").getAsString()));
+        assertEquals(2, exported.getAsJsonObject("status").get("code").getAsInt());
+        JsonArray attributes = exported.getAsJsonArray("attributes");
+        assertEquals("/accounts", value(attributes, "url.template").get("stringValue").getAsString());
+        assertEquals("503", value(attributes, "http.response.status_code").get("intValue").getAsString());
+        assertTrue(value(attributes, "session.cached").get("boolValue").getAsBoolean());
+    }
+
+    private static SpanData byName(List<SpanData> spans, String name) {
+        return spans.stream()
+                .filter(span -> span.name().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static JsonObject value(JsonArray attributes, String key) {
+        for (int i = 0; i < attributes.size(); i++) {
+            JsonObject attribute = attributes.get(i).getAsJsonObject();
+            if (attribute.get("key").getAsString().equals(key)) {
+                return attribute.getAsJsonObject("value");
+            }
+        }
+        throw new AssertionError("No attribute " + key);
+    }
+}
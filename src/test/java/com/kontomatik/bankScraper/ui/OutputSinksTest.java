@@ -0,0 +1,215 @@
+package com.kontomatik.bankScraper.ui;
+
+import com.kontomatik.bankScraper.models.Account;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputSinksTest {
+
+    private static final List<Account> ACCOUNTS = List.of(
+            new Account("123456", new BigDecimal("1000.0"), "Account1"),
+            new Account("654,321", new BigDecimal("-2.50"), "Konto \"Oszczędnościowe\"\n"),
+            new Account("777", null, null));
+
+    private final OutputSinks outputSinks = new OutputSinks("text", 2, 16);
+
+    @Test
+    void shouldStreamTextReportIdenticalToConsolePrinter() {
+        // when
+        String output = writeAll(AccountFormat.TEXT);
+
+        // then
+        assertEquals(new ConsolePrinter().formatAccountGroups(ACCOUNTS), output);
+    }
+
+    @Test
+    void shouldQuoteCsvFields() {
+        // when
+        String output = writeAll(AccountFormat.CSV);
+
+        // then
+        assertEquals("""
+                accountNumber,name,balance
+                123456,Account1,1000.0
+                "654,321","Konto ""Oszczędnościowe""
+                ",-2.50
+                777,,
+                """, output);
+    }
+
+    @Test
+    void shouldEscapeNdjsonLines() {
+        // when
+        String output = writeAll(AccountFormat.NDJSON);
+
+        // then
+        assertEquals("""
+                {"accountNumber":"123456","name":"Account1","balance":1000.0}
+                {"accountNumber":"654,321","name":"Konto \\"Oszczędnościowe\\"\\n","balance":-2.50}
+                {"accountNumber":"777","name":null,"balance":null}
+                """, output);
+    }
+
+    @Test
+    void shouldBlockProducersWhileWriterIsSlowAndKeepOrder() throws InterruptedException {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                written.write(bytes, offset, length);
+            }
+        };
+        AccountSink sink = outputSinks.open(slow, AccountFormat.CSV);
+        CountDownLatch producerDone = new CountDownLatch(1);
+
+        // when
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    sink.write(new Account(String.valueOf(i), BigDecimal.ONE, "a"));
+                }
+                producerDone.countDown();
+            });
+
+            // then
+            assertFalse(producerDone.await(200, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(producerDone.await(5, TimeUnit.SECONDS));
+        }
+        sink.close();
+        String[] lines = written.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(101, lines.length);
+        assertEquals("99,a,1", lines[100]);
+    }
+
+    @Test
+    void shouldSurfaceWriterFailures() {
+        // given
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        AccountSink sink = outputSinks.open(broken, AccountFormat.NDJSON);
+
+        // when
+        sink.write(ACCOUNTS.getFirst());
+
+        // then
+        UncheckedIOException exception = assertThrows(UncheckedIOException.class, sink::close);
+        assertEquals("disk full", exception.getCause().getMessage());
+    }
+
+    @Test
+    void shouldNotHangWhenClosingTheStreamFails() {
+        // given
+        OutputStream failsOnClose = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void close() throws IOException {
+                throw new IOException("close failed");
+            }
+        };
+        AccountSink sink = outputSinks.open(failsOnClose, AccountFormat.CSV);
+        sink.write(ACCOUNTS.getFirst());
+
+        // when & then
+        UncheckedIOException exception = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(UncheckedIOException.class, sink::close));
+        assertEquals("close failed", exception.getCause().getMessage());
+    }
+
+    @Test
+    void shouldReleaseBlockedProducersWhenWriterThrowsRuntimeException() {
+        // given
+        OutputStream rejecting = new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new IllegalStateException("stream rejected");
+            }
+        };
+        AccountSink sink = outputSinks.open(rejecting, AccountFormat.NDJSON);
+
+        // when & then
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(UncheckedIOException.class, () -> {
+                for (int i = 0; i < 100; i++) {
+                    sink.write(new Account(String.valueOf(i), BigDecimal.ONE, "a"));
+                }
+                sink.close();
+            });
+        });
+    }
+
+    @Test
+    void shouldWriteEveryAcceptedAccountWhenClosedWhileProducersRun() {
+        // given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AccountSink sink = outputSinks.open(output, AccountFormat.NDJSON);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch producing = new CountDownLatch(4);
+
+        // when
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            try (ExecutorService producers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int p = 0; p < 4; p++) {
+                    producers.submit(() -> {
+                        producing.countDown();
+                        try {
+                            for (int i = 0; i < 500; i++) {
+                                sink.write(new Account(String.valueOf(i), BigDecimal.ONE, "a"));
+                                accepted.incrementAndGet();
+                            }
+                        } catch (IllegalStateException closed) {
+                            // the sink closed under this producer
+                        }
+                    });
+                }
+                producing.await();
+                sink.close();
+            }
+        });
+
+        // then
+        assertEquals(accepted.get(), output.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    private String writeAll(AccountFormat format) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (AccountSink sink = outputSinks.open(output, format)) {
+            ACCOUNTS.forEach(sink::write);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}